@@ -0,0 +1,183 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------------
+ * DatasetBenchmark.java
+ * ---------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.data.DefaultKeyedValues;
+import org.jfree.data.statistics.HistogramDataset;
+import org.jfree.util.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link HistogramDataset} and
+ * {@link DefaultKeyedValues} classes.
+ * <P>
+ * removeValue() and sortByValues() modify the keyed values, so those
+ * benchmarks run in single-shot mode against a copy that is made before
+ * each iteration.  Making the copy is neither timed nor counted in the
+ * allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetBenchmark {
+
+    /**
+     * Random observations for the histogram.
+     */
+    @State(Scope.Benchmark)
+    public static class Observations {
+
+        /** The number of observations. */
+        @Param({"1000", "100000"})
+        public int size;
+
+        /** The observations. */
+        double[] values;
+
+        /**
+         * Creates the observations.
+         */
+        @Setup
+        public void setUp() {
+            Random random = new Random(1L);
+            this.values = new double[this.size];
+            for (int i = 0; i < this.size; i++) {
+                this.values[i] = random.nextGaussian();
+            }
+        }
+    }
+
+    /**
+     * Keyed values that are restored before each iteration.
+     */
+    @State(Scope.Thread)
+    public static class KeyedValues {
+
+        /** The number of keys. */
+        @Param({"1000", "100000"})
+        public int keyCount;
+
+        /** A fully populated set of keyed values (never modified). */
+        private DefaultKeyedValues template;
+
+        /** A copy of the template for the benchmark to modify. */
+        DefaultKeyedValues values;
+
+        /**
+         * Creates the template.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(1L);
+            this.template = new DefaultKeyedValues();
+            for (int i = 0; i < this.keyCount; i++) {
+                this.template.addValue("K" + i, random.nextDouble());
+            }
+        }
+
+        /**
+         * Restores the values from the template.
+         *
+         * @throws CloneNotSupportedException if the values cannot be cloned.
+         */
+        @Setup(Level.Iteration)
+        public void copyValues() throws CloneNotSupportedException {
+            this.values = (DefaultKeyedValues) this.template.clone();
+        }
+    }
+
+    /**
+     * Adds {@code size} observations to a histogram with 100 bins.
+     */
+    @Benchmark
+    public HistogramDataset histogramAddSeries(Observations state) {
+        HistogramDataset dataset = new HistogramDataset();
+        dataset.addSeries("S", state.values, 100);
+        return dataset;
+    }
+
+    /**
+     * Removes two values, one by index and one by key.  Each iteration
+     * makes 100 calls against a fresh copy, so at most 200 of the keys are
+     * removed.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10, batchSize = 100)
+    @Measurement(iterations = 20, batchSize = 100)
+    public DefaultKeyedValues keyedValuesRemoveValue(KeyedValues state) {
+        DefaultKeyedValues values = state.values;
+        // removing from the front shifts every remaining item
+        values.removeValue(0);
+        values.removeValue(values.getKey(values.getItemCount() / 2));
+        return values;
+    }
+
+    /**
+     * Sorts the keyed values by value, once per iteration so that every
+     * call sorts unsorted values.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public DefaultKeyedValues keyedValuesSortByValues(KeyedValues state) {
+        state.values.sortByValues(SortOrder.ASCENDING);
+        return state.values;
+    }
+
+}
@@ -0,0 +1,189 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ----------------------
+ * RendererBenchmark.java
+ * ----------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.PiePlot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.GrayPaintScale;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+import org.jfree.data.general.DefaultPieDataset;
+import org.jfree.data.xy.DefaultXYZDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link GrayPaintScale} and for headless drawing of charts
+ * using {@link XYBlockRenderer} and {@link PiePlot}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RendererBenchmark {
+
+    /**
+     * The paint scale, the lookups do not depend on the chart size.
+     */
+    @State(Scope.Benchmark)
+    public static class Scale {
+
+        /** The paint scale. */
+        final GrayPaintScale scale = new GrayPaintScale(0.0, 1.0);
+    }
+
+    /**
+     * The charts and the image that they are drawn into.
+     */
+    @State(Scope.Benchmark)
+    public static class Charts {
+
+        /**
+         * The width and height of the heat map grid, the number of pie
+         * sections is the same value.
+         */
+        @Param({"10", "100"})
+        public int size;
+
+        /** A heat map chart with size * size blocks. */
+        JFreeChart blockChart;
+
+        /** A pie chart with size sections. */
+        JFreeChart pieChart;
+
+        /** The image to draw into. */
+        BufferedImage image;
+
+        /** The graphics for the image. */
+        Graphics2D g2;
+
+        /** The drawing area. */
+        Rectangle2D area;
+
+        /**
+         * Creates the charts.
+         */
+        @Setup
+        public void setUp() {
+            int count = this.size * this.size;
+            double[][] data = new double[3][count];
+            for (int i = 0; i < count; i++) {
+                data[0][i] = i % this.size;
+                data[1][i] = i / this.size;
+                data[2][i] = (i % 7) / 7.0;
+            }
+            DefaultXYZDataset xyz = new DefaultXYZDataset();
+            xyz.addSeries("S", data);
+            XYBlockRenderer renderer = new XYBlockRenderer();
+            renderer.setPaintScale(new GrayPaintScale(0.0, 1.0));
+            XYPlot xyPlot = new XYPlot(xyz, new NumberAxis("X"),
+                    new NumberAxis("Y"), renderer);
+            this.blockChart = new JFreeChart(xyPlot);
+
+            DefaultPieDataset pie = new DefaultPieDataset();
+            for (int i = 0; i < this.size; i++) {
+                pie.setValue("Section " + i, i + 1.0);
+            }
+            this.pieChart = new JFreeChart(new PiePlot(pie));
+
+            this.image = new BufferedImage(800, 600,
+                    BufferedImage.TYPE_INT_ARGB);
+            this.g2 = this.image.createGraphics();
+            this.area = new Rectangle2D.Double(0, 0, 800, 600);
+        }
+
+        /**
+         * Releases the graphics.
+         */
+        @TearDown
+        public void tearDown() {
+            this.g2.dispose();
+        }
+    }
+
+    /**
+     * Looks up 1000 paints across the scale.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void grayPaintScaleGetPaint(Scale state, Blackhole blackhole) {
+        for (int i = 0; i < 1000; i++) {
+            blackhole.consume(state.scale.getPaint(i / 1000.0));
+        }
+    }
+
+    /**
+     * Draws the heat map chart.
+     */
+    @Benchmark
+    public BufferedImage drawXYBlockChart(Charts state) {
+        state.blockChart.draw(state.g2, state.area);
+        return state.image;
+    }
+
+    /**
+     * Draws the pie chart.
+     */
+    @Benchmark
+    public BufferedImage drawPieChart(Charts state) {
+        state.pieChart.draw(state.g2, state.area);
+        return state.image;
+    }
+
+}
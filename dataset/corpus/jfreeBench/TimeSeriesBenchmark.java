@@ -0,0 +1,150 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ------------------------
+ * TimeSeriesBenchmark.java
+ * ------------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.data.Range;
+import org.jfree.data.time.FixedMillisecond;
+import org.jfree.data.time.RegularTimePeriod;
+import org.jfree.data.time.TimeSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link TimeSeries} class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesBenchmark {
+
+    /** The number of items in the series. */
+    @Param({"1000", "100000"})
+    public int size;
+
+    /** A series with {@code size} items. */
+    private TimeSeries series;
+
+    /** Periods to look up, half of them present in the series. */
+    private RegularTimePeriod[] lookups;
+
+    /** The next lookup to use. */
+    private int next;
+
+    /**
+     * Creates the test data.
+     */
+    @Setup
+    public void setUp() {
+        this.series = createSeries(this.size);
+        Random random = new Random(1L);
+        this.lookups = new RegularTimePeriod[1024];
+        for (int i = 0; i < this.lookups.length; i++) {
+            // even millisecond values are in the series
+            this.lookups[i] = new FixedMillisecond(random.nextInt(
+                    2 * this.size));
+        }
+    }
+
+    /**
+     * Creates a series with one item for every even millisecond.
+     *
+     * @param itemCount  the number of items.
+     *
+     * @return A new series.
+     */
+    static TimeSeries createSeries(int itemCount) {
+        TimeSeries s = new TimeSeries("S");
+        for (int i = 0; i < itemCount; i++) {
+            s.add(new FixedMillisecond(2L * i), Math.sin(i), false);
+        }
+        return s;
+    }
+
+    /**
+     * Builds a series of {@code size} items in time order.
+     */
+    @Benchmark
+    public TimeSeries add() {
+        return createSeries(this.size);
+    }
+
+    /**
+     * Looks up a period in the series.
+     */
+    @Benchmark
+    public int getIndex() {
+        RegularTimePeriod period = this.lookups[this.next];
+        this.next = (this.next + 1) & (this.lookups.length - 1);
+        return this.series.getIndex(period);
+    }
+
+    /**
+     * Copies the first half of the series.
+     */
+    @Benchmark
+    public TimeSeries createCopy() throws CloneNotSupportedException {
+        return this.series.createCopy(0, this.size / 2);
+    }
+
+    /**
+     * Finds the range of y-values in the series.
+     */
+    @Benchmark
+    public Range findValueRange() {
+        return this.series.findValueRange();
+    }
+
+}
@@ -0,0 +1,524 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates. 
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------------
+ * BatchChartRenderer.java
+ * -----------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.CombinedDomainCategoryPlot;
+import org.jfree.chart.plot.CombinedDomainXYPlot;
+import org.jfree.chart.plot.CombinedRangeCategoryPlot;
+import org.jfree.chart.plot.CombinedRangeXYPlot;
+import org.jfree.chart.plot.PiePlot;
+import org.jfree.chart.plot.Plot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.chart.util.ParamChecks;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Renders batches of charts to PNG images on a pool of worker threads.
+ * <br><br>
+ * Plots and renderers hold mutable state while drawing, so by default each
+ * request draws a clone of its chart (see {@link JFreeChart#clone()}), which
+ * lets one chart act as a template for many requests.  Datasets are not
+ * cloned, so they must not be modified while a batch is running.  After
+ * drawing, each clone is removed from the listeners of the datasets it
+ * shares with the template.  If every
+ * request has its own chart, cloning can be switched off with
+ * {@link #setCloneCharts(boolean)}.
+ * <br><br>
+ * Each worker thread reuses one image buffer for as long as successive
+ * requests have the same size.  Encoded images are passed to a
+ * {@link ChartImageSink} as soon as each chart is finished.  Cumulative
+ * timings for each stage (queue wait, clone, draw, encode and write) are
+ * recorded and can be read at any time.
+ * <br><br>
+ * For server use, run with <code>-Djava.awt.headless=true</code>.
+ *
+ * @since 1.0.20
+ */
+public class BatchChartRenderer {
+
+    /** The worker threads. */
+    private final ExecutorService executor;
+
+    /** The number of worker threads. */
+    private final int threadCount;
+
+    /** A flag that controls whether charts are cloned before drawing. */
+    private volatile boolean cloneCharts;
+
+    /** One reusable image buffer per worker thread. */
+    private final ThreadLocal<BufferedImage> buffers
+            = new ThreadLocal<BufferedImage>();
+
+    /** The number of requests completed successfully. */
+    private final AtomicLong imageCount = new AtomicLong();
+
+    /** The number of requests that failed. */
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /** The number of encoded bytes passed to sinks. */
+    private final AtomicLong byteCount = new AtomicLong();
+
+    /** The total time requests spent waiting for a worker. */
+    private final AtomicLong queueNanos = new AtomicLong();
+
+    /** The total time spent cloning charts. */
+    private final AtomicLong cloneNanos = new AtomicLong();
+
+    /** The total time spent drawing charts. */
+    private final AtomicLong drawNanos = new AtomicLong();
+
+    /** The total time spent encoding images. */
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    /** The total time spent in the sink. */
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    /** The total elapsed time of calls to render(). */
+    private final AtomicLong batchNanos = new AtomicLong();
+
+    /**
+     * Creates a new renderer with one worker thread per available processor.
+     */
+    public BatchChartRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new renderer.
+     *
+     * @param threadCount  the number of worker threads (must be positive).
+     */
+    public BatchChartRenderer(int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Requires 'threadCount' > 0.");
+        }
+        this.threadCount = threadCount;
+        this.cloneCharts = true;
+        this.executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "BatchChartRenderer-"
+                                + this.count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return The thread count.
+     */
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+
+    /**
+     * Returns the flag that controls whether each request draws a clone of its chart.
+     *
+     * @return A boolean.
+     *
+     * @see #setCloneCharts(boolean)
+     */
+    public boolean getCloneCharts() {
+        return this.cloneCharts;
+    }
+
+    /**
+     * Sets the flag that controls whether each request draws a clone of its chart.
+     * This should only be switched off if no two requests share a chart.
+     *
+     * @param clone  the new flag value.
+     *
+     * @see #getCloneCharts()
+     */
+    public void setCloneCharts(boolean clone) {
+        this.cloneCharts = clone;
+    }
+
+    /**
+     * Renders a batch of charts and passes the encoded images to the sink.
+     * This method blocks until every request has been written or has failed;
+     * failures are reported to {@link ChartImageSink#failed} and do not stop
+     * the rest of the batch.
+     *
+     * @param requests  the requests ({@code null} not permitted).
+     * @param sink  the sink ({@code null} not permitted).
+     *
+     * @return The number of requests that failed.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public int render(Collection<ChartRenderRequest> requests,
+            final ChartImageSink sink) throws InterruptedException {
+        ParamChecks.nullNotPermitted(requests, "requests");
+        ParamChecks.nullNotPermitted(sink, "sink");
+        long start = System.nanoTime();
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(
+                requests.size());
+        for (final ChartRenderRequest request : requests) {
+            final long queued = System.nanoTime();
+            futures.add(this.executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    BatchChartRenderer.this.queueNanos.addAndGet(
+                            System.nanoTime() - queued);
+                    return renderOne(request, sink);
+                }
+            }));
+        }
+        int failures = 0;
+        try {
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (!future.get()) {
+                        failures++;
+                    }
+                }
+                catch (ExecutionException e) {
+                    // renderOne() reports its own failures, this is an Error
+                    failures++;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            for (Future<Boolean> future : futures) {
+                future.cancel(false);
+            }
+            throw e;
+        }
+        finally {
+            this.batchNanos.addAndGet(System.nanoTime() - start);
+        }
+        return failures;
+    }
+
+    /**
+     * Renders, encodes and writes a single request on the current thread.
+     *
+     * @param request  the request.
+     * @param sink  the sink.
+     *
+     * @return {@code true} if the image was written, {@code false} if the request failed.
+     */
+    private boolean renderOne(ChartRenderRequest request,
+            ChartImageSink sink) {
+        try {
+            long t0 = System.nanoTime();
+            JFreeChart chart = request.getChart();
+            boolean cloned = this.cloneCharts;
+            if (cloned) {
+                chart = (JFreeChart) chart.clone();
+            }
+            long t1 = System.nanoTime();
+            long t2;
+            byte[] data;
+            try {
+                BufferedImage image = getBuffer(request.getWidth(),
+                        request.getHeight());
+                Graphics2D g2 = image.createGraphics();
+                try {
+                    g2.setComposite(AlphaComposite.Clear);
+                    g2.fillRect(0, 0, request.getWidth(),
+                            request.getHeight());
+                    g2.setComposite(AlphaComposite.SrcOver);
+                    chart.draw(g2, new Rectangle2D.Double(0, 0,
+                            request.getWidth(), request.getHeight()), null,
+                            null);
+                }
+                finally {
+                    g2.dispose();
+                }
+                t2 = System.nanoTime();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(
+                        request.getWidth() * request.getHeight() / 8);
+                ChartUtilities.writeBufferedImageAsPNG(out, image);
+                data = out.toByteArray();
+            }
+            finally {
+                if (cloned) {
+                    detach(chart.getPlot());
+                }
+            }
+            long t3 = System.nanoTime();
+            sink.write(request, data);
+            long t4 = System.nanoTime();
+
+            this.cloneNanos.addAndGet(t1 - t0);
+            this.drawNanos.addAndGet(t2 - t1);
+            this.encodeNanos.addAndGet(t3 - t2);
+            this.writeNanos.addAndGet(t4 - t3);
+            this.byteCount.addAndGet(data.length);
+            this.imageCount.incrementAndGet();
+            return true;
+        }
+        catch (Exception e) {
+            this.failureCount.incrementAndGet();
+            sink.failed(request, e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes a cloned plot, and the renderers of an XY plot, from the change
+     * listeners of its datasets.
+     * Cloning a plot registers the clone with the datasets it shares with
+     * the original, so without this every request would leave one dead plot
+     * in the listener list of the template's datasets.
+     *
+     * @param plot  the cloned plot ({@code null} permitted).
+     */
+    private static void detach(Plot plot) {
+        if (plot instanceof PiePlot) {
+            PieDataset dataset = ((PiePlot) plot).getDataset();
+            if (dataset != null) {
+                dataset.removeChangeListener(plot);
+            }
+        }
+        else if (plot instanceof XYPlot) {
+            XYPlot xyPlot = (XYPlot) plot;
+            for (int i = 0; i < xyPlot.getDatasetCount(); i++) {
+                XYDataset dataset = xyPlot.getDataset(i);
+                if (dataset != null) {
+                    dataset.removeChangeListener(plot);
+                }
+            }
+            // some renderers, such as XYBlockRenderer, listen to the datasets
+            // until they are removed from their plot
+            for (int i = 0; i < xyPlot.getRendererCount(); i++) {
+                XYItemRenderer renderer = xyPlot.getRenderer(i);
+                if (renderer != null) {
+                    renderer.setPlot(null);
+                }
+            }
+            List subplots = null;
+            if (plot instanceof CombinedDomainXYPlot) {
+                subplots = ((CombinedDomainXYPlot) plot).getSubplots();
+            }
+            else if (plot instanceof CombinedRangeXYPlot) {
+                subplots = ((CombinedRangeXYPlot) plot).getSubplots();
+            }
+            detachAll(subplots);
+        }
+        else if (plot instanceof CategoryPlot) {
+            CategoryPlot categoryPlot = (CategoryPlot) plot;
+            for (int i = 0; i < categoryPlot.getDatasetCount(); i++) {
+                CategoryDataset dataset = categoryPlot.getDataset(i);
+                if (dataset != null) {
+                    dataset.removeChangeListener(plot);
+                }
+            }
+            List subplots = null;
+            if (plot instanceof CombinedDomainCategoryPlot) {
+                subplots = ((CombinedDomainCategoryPlot) plot).getSubplots();
+            }
+            else if (plot instanceof CombinedRangeCategoryPlot) {
+                subplots = ((CombinedRangeCategoryPlot) plot).getSubplots();
+            }
+            detachAll(subplots);
+        }
+    }
+
+    /**
+     * Detaches each plot in a list of subplots.
+     *
+     * @param subplots  the subplots ({@code null} permitted).
+     */
+    private static void detachAll(List subplots) {
+        if (subplots != null) {
+            for (Object subplot : subplots) {
+                detach((Plot) subplot);
+            }
+        }
+    }
+
+    /**
+     * Returns the current thread's image buffer, creating a new one if the
+     * existing buffer has a different size.
+     *
+     * @param width  the width.
+     * @param height  the height.
+     *
+     * @return An image buffer.
+     */
+    private BufferedImage getBuffer(int width, int height) {
+        BufferedImage image = this.buffers.get();
+        if (image == null || image.getWidth() != width
+                || image.getHeight() != height) {
+            image = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_ARGB);
+            this.buffers.set(image);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the number of images written successfully.
+     *
+     * @return The image count.
+     */
+    public long getImageCount() {
+        return this.imageCount.get();
+    }
+
+    /**
+     * Returns the number of requests that failed.
+     *
+     * @return The failure count.
+     */
+    public long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    /**
+     * Returns the total number of encoded bytes passed to sinks.
+     *
+     * @return The byte count.
+     */
+    public long getByteCount() {
+        return this.byteCount.get();
+    }
+
+    /**
+     * Returns the total time requests spent waiting for a worker thread.
+     *
+     * @return The time (in nanoseconds).
+     */
+    public long getQueueNanos() {
+        return this.queueNanos.get();
+    }
+
+    /**
+     * Returns the total time spent cloning charts.
+     *
+     * @return The time (in nanoseconds).
+     */
+    public long getCloneNanos() {
+        return this.cloneNanos.get();
+    }
+
+    /**
+     * Returns the total time spent drawing charts.
+     *
+     * @return The time (in nanoseconds).
+     */
+    public long getDrawNanos() {
+        return this.drawNanos.get();
+    }
+
+    /**
+     * Returns the total time spent encoding images.
+     *
+     * @return The time (in nanoseconds).
+     */
+    public long getEncodeNanos() {
+        return this.encodeNanos.get();
+    }
+
+    /**
+     * Returns the total time spent passing images to sinks.
+     *
+     * @return The time (in nanoseconds).
+     */
+    public long getWriteNanos() {
+        return this.writeNanos.get();
+    }
+
+    /**
+     * Returns the average number of images written per second of elapsed time in {@link #render}.
+     *
+     * @return The throughput (0.0 if nothing has been rendered).
+     */
+    public double getImagesPerSecond() {
+        long nanos = this.batchNanos.get();
+        if (nanos == 0L) {
+            return 0.0;
+        }
+        return this.imageCount.get() * 1.0e9 / nanos;
+    }
+
+    /**
+     * Resets all the counters and timings to zero.
+     */
+    public void resetStatistics() {
+        this.imageCount.set(0L);
+        this.failureCount.set(0L);
+        this.byteCount.set(0L);
+        this.queueNanos.set(0L);
+        this.cloneNanos.set(0L);
+        this.drawNanos.set(0L);
+        this.encodeNanos.set(0L);
+        this.writeNanos.set(0L);
+        this.batchNanos.set(0L);
+    }
+
+    /**
+     * Stops the worker threads.  Requests that have already been submitted are completed.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+}
@@ -0,0 +1,385 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------------------
+ * CategoryLabelExtentCache.java
+ * -----------------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.axis;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jfree.chart.util.ParamChecks;
+import org.jfree.text.G2TextMeasurer;
+import org.jfree.text.TextBlock;
+import org.jfree.text.TextUtilities;
+import org.jfree.ui.Size2D;
+import org.jfree.util.ShapeUtilities;
+
+/**
+ * A bounded, least-recently-used cache of the extents of rotated category
+ * labels.  A {@link CategoryAxis} lays out each category label as a
+ * {@link TextBlock} that is wrapped to a maximum width and line count, then
+ * measures the bounds of that block after rotating it for the
+ * {@link CategoryLabelPosition}.  This is repeated for every category on
+ * every layout, so axes with many categories spend much of their layout time
+ * in font metrics; this cache lets those results be reused across redraws
+ * and across charts.
+ * <br><br>
+ * The extent returned by {@link #getExtent(String, Font, float, int, double,
+ * Graphics2D)} is the size of the rotated text block, the same value that
+ * {@code CategoryAxis.calculateTextBlockWidth()} and
+ * {@code calculateTextBlockHeight()} compute before adding the tick label
+ * insets.  Entries are keyed by the label text, font, font render context,
+ * maximum width, maximum line count and rotation angle.  The angle is the
+ * only part of a {@link CategoryLabelPosition} that affects the extent, so
+ * positions with the same angle share entries.
+ * <br><br>
+ * Instances of this class are thread-safe.
+ *
+ * @since 1.0.20
+ */
+public class CategoryLabelExtentCache {
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** The instance shared by all axes in the JVM. */
+    private static final CategoryLabelExtentCache SHARED_INSTANCE
+            = new CategoryLabelExtentCache(DEFAULT_MAX_ENTRIES);
+
+    /** The maximum number of entries. */
+    private final int maxEntries;
+
+    /** The cached extents, in access order (guarded by 'this'). */
+    private final LinkedHashMap<Key, double[]> extents;
+
+    /** The number of lookups that found a cached extent. */
+    private long hitCount;
+
+    /** The number of lookups that had to measure the label. */
+    private long missCount;
+
+    /** The number of entries evicted to respect the maximum size. */
+    private long evictionCount;
+
+    /**
+     * Returns the cache that is shared by all axes in the JVM.
+     *
+     * @return The shared cache (never {@code null}).
+     */
+    public static CategoryLabelExtentCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries  the maximum number of entries (must be positive).
+     */
+    public CategoryLabelExtentCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "Requires 'maxEntries' > 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.extents = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, double[]> e) {
+                if (size() > CategoryLabelExtentCache.this.maxEntries) {
+                    CategoryLabelExtentCache.this.evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return The maximum number of entries.
+     */
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * Returns the width and height of the bounds of a category label after
+     * it has been wrapped and rotated for the specified position.
+     *
+     * @param text  the label text ({@code null} not permitted).
+     * @param font  the font ({@code null} not permitted).
+     * @param maxWidth  the maximum width of a line of the label.
+     * @param maxLines  the maximum number of lines.
+     * @param position  the label position ({@code null} not permitted).
+     * @param g2  the graphics device ({@code null} not permitted).
+     *
+     * @return The extent of the rotated label.
+     */
+    public Size2D getExtent(String text, Font font, float maxWidth,
+            int maxLines, CategoryLabelPosition position, Graphics2D g2) {
+        ParamChecks.nullNotPermitted(position, "position");
+        return getExtent(text, font, maxWidth, maxLines, position.getAngle(),
+                g2);
+    }
+
+    /**
+     * Returns the width and height of the bounds of a category label after
+     * it has been wrapped to {@code maxWidth} and {@code maxLines} and
+     * rotated by the specified angle.  On a miss the label is laid out with
+     * {@link TextUtilities#createTextBlock(String, Font, java.awt.Paint,
+     * float, int, org.jfree.text.TextMeasurer)} and measured on {@code g2},
+     * as {@link CategoryAxis} does.
+     *
+     * @param text  the label text ({@code null} not permitted).
+     * @param font  the font ({@code null} not permitted).
+     * @param maxWidth  the maximum width of a line of the label.
+     * @param maxLines  the maximum number of lines.
+     * @param angle  the rotation angle (in radians).
+     * @param g2  the graphics device ({@code null} not permitted).
+     *
+     * @return The extent of the rotated label.
+     */
+    public Size2D getExtent(String text, Font font, float maxWidth,
+            int maxLines, double angle, Graphics2D g2) {
+        ParamChecks.nullNotPermitted(text, "text");
+        ParamChecks.nullNotPermitted(font, "font");
+        ParamChecks.nullNotPermitted(g2, "g2");
+        Key key = new Key(text, font, g2.getFontRenderContext(), maxWidth,
+                maxLines, angle);
+        double[] extent;
+        synchronized (this) {
+            extent = this.extents.get(key);
+            if (extent != null) {
+                this.hitCount++;
+            }
+            else {
+                this.missCount++;
+            }
+        }
+        if (extent == null) {
+            // measure outside the lock, two threads may occasionally measure
+            // the same label but the results are identical
+            extent = measure(text, font, maxWidth, maxLines, angle, g2);
+            synchronized (this) {
+                this.extents.put(key, extent);
+            }
+        }
+        return new Size2D(extent[0], extent[1]);
+    }
+
+    /**
+     * Lays out a label as a text block and returns the width and height of
+     * its bounds after rotation.
+     *
+     * @param text  the label text.
+     * @param font  the font.
+     * @param maxWidth  the maximum line width.
+     * @param maxLines  the maximum number of lines.
+     * @param angle  the rotation angle (in radians).
+     * @param g2  the graphics device.
+     *
+     * @return An array containing the width and height.
+     */
+    private static double[] measure(String text, Font font, float maxWidth,
+            int maxLines, double angle, Graphics2D g2) {
+        // the text measurer uses the current font of g2, the axis sets the
+        // tick label font before it creates a label
+        Font saved = g2.getFont();
+        g2.setFont(font);
+        try {
+            TextBlock block = TextUtilities.createTextBlock(text, font,
+                    Color.black, maxWidth, maxLines, new G2TextMeasurer(g2));
+            Size2D size = block.calculateDimensions(g2);
+            Rectangle2D box = new Rectangle2D.Double(0.0, 0.0,
+                    size.getWidth(), size.getHeight());
+            Shape rotatedBox = ShapeUtilities.rotateShape(box, angle, 0.0f,
+                    0.0f);
+            Rectangle2D bounds = rotatedBox.getBounds2D();
+            return new double[] {bounds.getWidth(), bounds.getHeight()};
+        }
+        finally {
+            g2.setFont(saved);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return The entry count.
+     */
+    public synchronized int getEntryCount() {
+        return this.extents.size();
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that had to measure the label.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of entries that have been evicted to keep the cache
+     * within its maximum size.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public synchronized void clear() {
+        this.extents.clear();
+        this.hitCount = 0;
+        this.missCount = 0;
+        this.evictionCount = 0;
+    }
+
+    /**
+     * Returns a string summarising the cache statistics.
+     *
+     * @return A string.
+     */
+    @Override
+    public synchronized String toString() {
+        return "CategoryLabelExtentCache[entries=" + this.extents.size()
+                + ", hits=" + this.hitCount + ", misses=" + this.missCount
+                + ", evictions=" + this.evictionCount + "]";
+    }
+
+    /**
+     * A cache key.
+     */
+    private static final class Key {
+
+        /** The label text. */
+        private final String text;
+
+        /** The font. */
+        private final Font font;
+
+        /** The font render context. */
+        private final FontRenderContext frc;
+
+        /** The maximum line width. */
+        private final float maxWidth;
+
+        /** The maximum number of lines. */
+        private final int maxLines;
+
+        /** The rotation angle. */
+        private final double angle;
+
+        /** The precomputed hash code. */
+        private final int hash;
+
+        /**
+         * Creates a new key.
+         *
+         * @param text  the text.
+         * @param font  the font.
+         * @param frc  the font render context.
+         * @param maxWidth  the maximum line width.
+         * @param maxLines  the maximum number of lines.
+         * @param angle  the rotation angle.
+         */
+        Key(String text, Font font, FontRenderContext frc, float maxWidth,
+                int maxLines, double angle) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.maxWidth = maxWidth;
+            this.maxLines = maxLines;
+            this.angle = angle;
+            int h = text.hashCode();
+            h = 31 * h + font.hashCode();
+            h = 31 * h + frc.hashCode();
+            h = 31 * h + Float.floatToIntBits(maxWidth);
+            h = 31 * h + maxLines;
+            long bits = Double.doubleToLongBits(angle);
+            this.hash = 31 * h + (int) (bits ^ (bits >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.hash == that.hash
+                    && this.maxLines == that.maxLines
+                    && Float.floatToIntBits(this.maxWidth)
+                    == Float.floatToIntBits(that.maxWidth)
+                    && Double.doubleToLongBits(this.angle)
+                    == Double.doubleToLongBits(that.angle)
+                    && this.text.equals(that.text)
+                    && this.font.equals(that.font)
+                    && this.frc.equals(that.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates. 
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -------------------
+ * ChartImageSink.java
+ * -------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart;
+
+import java.io.IOException;
+
+/**
+ * Receives the encoded images produced by a {@link BatchChartRenderer}.
+ * Methods are called from the renderer's worker threads as each chart
+ * completes, so implementations must be thread-safe.
+ *
+ * @since 1.0.20
+ */
+public interface ChartImageSink {
+
+    /**
+     * Receives the encoded image for a request.
+     *
+     * @param request  the request.
+     * @param data  the encoded image (for example, PNG bytes).
+     *
+     * @throws IOException if the image cannot be written.
+     */
+    public void write(ChartRenderRequest request, byte[] data)
+            throws IOException;
+
+    /**
+     * Receives notification that a request could not be rendered, encoded or written.
+     *
+     * @param request  the request.
+     * @param cause  the failure.
+     */
+    public void failed(ChartRenderRequest request, Throwable cause);
+
+}
@@ -0,0 +1,134 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates. 
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------------
+ * ChartRenderRequest.java
+ * -----------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart;
+
+import org.jfree.chart.util.ParamChecks;
+
+/**
+ * A request to render a chart to an image, used by
+ * {@link BatchChartRenderer}.  Instances of this class are immutable.
+ *
+ * @since 1.0.20
+ */
+public class ChartRenderRequest {
+
+    /** An identifier for the request, passed back to the sink. */
+    private final String name;
+
+    /** The chart. */
+    private final JFreeChart chart;
+
+    /** The image width (in pixels). */
+    private final int width;
+
+    /** The image height (in pixels). */
+    private final int height;
+
+    /**
+     * Creates a new request.
+     *
+     * @param name  an identifier for the request ({@code null} not permitted).
+     * @param chart  the chart ({@code null} not permitted).
+     * @param width  the image width (in pixels, must be positive).
+     * @param height  the image height (in pixels, must be positive).
+     */
+    public ChartRenderRequest(String name, JFreeChart chart, int width,
+            int height) {
+        ParamChecks.nullNotPermitted(name, "name");
+        ParamChecks.nullNotPermitted(chart, "chart");
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(
+                    "Requires 'width' > 0 and 'height' > 0.");
+        }
+        this.name = name;
+        this.chart = chart;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the identifier for the request.
+     *
+     * @return The name (never {@code null}).
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the chart.
+     *
+     * @return The chart (never {@code null}).
+     */
+    public JFreeChart getChart() {
+        return this.chart;
+    }
+
+    /**
+     * Returns the image width.
+     *
+     * @return The width (in pixels).
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the image height.
+     *
+     * @return The height (in pixels).
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns a string representation of the request.
+     *
+     * @return A string.
+     */
+    @Override
+    public String toString() {
+        return "ChartRenderRequest[" + this.name + ", " + this.width + "x"
+                + this.height + "]";
+    }
+
+}
@@ -34,6 +34,7 @@
  *                   Cameron Hayne;
  *                   Rikard Bj?rklind;
  *                   Thomas A Caswell (patch 2902842);
+ *                   agent;
  *
  * Changes
  * -------
@@ -57,6 +58,7 @@
  * 08-Dec-2009 : Fire change event in addSeries() - see patch 2902842
  *               contributed by Thomas A Caswell (DG);
  * 03-Jul-2013 : Use ParamChecks (DG);
+ * 19-Oct-2026 : Added primitive accessors backed by cached arrays (AG);
  *
  */
 
@@ -93,6 +95,12 @@ public class HistogramDataset extends AbstractIntervalXYDataset
     /** The histogram type. */
     private HistogramType type;
 
+    /**
+     * Cached x and y values for each series, computed on demand for the
+     * current histogram type (<code>null</code> when invalidated).
+     */
+    private transient SeriesValues[] cache;
+
     /**
      * Creates a new (empty) dataset with a default type of {@link HistogramType}.FREQUENCY.
      */
@@ -118,6 +126,7 @@ public class HistogramDataset extends AbstractIntervalXYDataset
     public void setType(HistogramType type) {
         ParamChecks.nullNotPermitted(type, "type");
         this.type = type;
+        this.cache = null;
         fireDatasetChanged();
     }
 
@@ -201,6 +210,7 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         map.put("values.length", new Integer(values.length));
         map.put("bin width", new Double(binWidth));
         this.list.add(map);
+        this.cache = null;
         fireDatasetChanged();
     }
 
@@ -337,10 +347,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        double x = (bin.getStartBoundary() + bin.getEndBoundary()) / 2.;
-        return new Double(x);
+        return new Double(getXValue(series, item));
+    }
+
+    /**
+     * Returns the x-value (the mid-point) for a bin as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The x-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the specified range.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getXValue(int series, int item) {
+        return getSeriesValues(series).x[item];
     }
 
     /**
@@ -355,23 +379,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getY(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        double total = getTotal(series);
-        double binWidth = getBinWidth(series);
+        return new Double(getYValue(series, item));
+    }
 
-        if (this.type == HistogramType.FREQUENCY) {
-            return new Double(bin.getCount());
-        }
-        else if (this.type == HistogramType.RELATIVE_FREQUENCY) {
-            return new Double(bin.getCount() / total);
-        }
-        else if (this.type == HistogramType.SCALE_AREA_TO_1) {
-            return new Double(bin.getCount() / (binWidth * total));
-        }
-        else { // pretty sure this shouldn't ever happen
-            throw new IllegalStateException();
-        }
+    /**
+     * Returns the y-value for a bin (calculated to take into account the histogram type) as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the specified range.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getYValue(int series, int item) {
+        return getSeriesValues(series).y[item];
     }
 
     /**
@@ -386,9 +411,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getStartX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        return new Double(bin.getStartBoundary());
+        return new Double(getStartXValue(series, item));
+    }
+
+    /**
+     * Returns the start value for a bin as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The start value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the specified range.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getStartXValue(int series, int item) {
+        return getSeriesValues(series).startX[item];
     }
 
     /**
@@ -403,9 +443,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getEndX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        return new Double(bin.getEndBoundary());
+        return new Double(getEndXValue(series, item));
+    }
+
+    /**
+     * Returns the end value for a bin as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The end value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the specified range.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getEndXValue(int series, int item) {
+        return getSeriesValues(series).endX[item];
     }
 
     /**
@@ -423,6 +478,21 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         return getY(series, item);
     }
 
+    /**
+     * Returns the start y-value for a bin as a double primitive (the same as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getStartYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
     /**
      * Returns the end y-value for a bin (which is the same as the y-value, this method exists only to support the general form of the {@link IntervalXYDataset} interface).
      *
@@ -438,6 +508,43 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         return getY(series, item);
     }
 
+    /**
+     * Returns the end y-value for a bin as a double primitive (the same as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @since 1.0.20
+     */
+    @Override
+    public double getEndYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    /**
+     * Returns the cached values for a series, computing them first if necessary.
+     *
+     * @param series  the series index.
+     *
+     * @return The cached values.
+     */
+    private SeriesValues getSeriesValues(int series) {
+        SeriesValues[] c = this.cache;
+        if (c == null || c.length != this.list.size()) {
+            c = new SeriesValues[this.list.size()];
+            this.cache = c;
+        }
+        SeriesValues values = c[series];
+        if (values == null) {
+            values = new SeriesValues(getBins(series), getTotal(series),
+                    getBinWidth(series), this.type);
+            c[series] = values;
+        }
+        return values;
+    }
+
     /**
      * Tests this dataset for equality with an arbitrary object.
      *
@@ -478,7 +585,63 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         for (int i = 0; i < seriesCount; i++) {
             clone.list.add(new HashMap((Map) this.list.get(i)));
         }
+        clone.cache = null;
         return clone;
     }
 
+    /**
+     * The x and y values for the bins in one series, stored in arrays so that
+     * renderers can read them without allocating.
+     */
+    private static class SeriesValues {
+
+        /** The start x-values. */
+        final double[] startX;
+
+        /** The end x-values. */
+        final double[] endX;
+
+        /** The x-values (bin mid-points). */
+        final double[] x;
+
+        /** The y-values for the histogram type. */
+        final double[] y;
+
+        /**
+         * Computes the values for a series.
+         *
+         * @param bins  the bins.
+         * @param total  the total number of observations.
+         * @param binWidth  the bin width.
+         * @param type  the histogram type.
+         */
+        SeriesValues(List bins, int total, double binWidth,
+                HistogramType type) {
+            int count = bins.size();
+            this.startX = new double[count];
+            this.endX = new double[count];
+            this.x = new double[count];
+            this.y = new double[count];
+            for (int i = 0; i < count; i++) {
+                HistogramBin bin = (HistogramBin) bins.get(i);
+                this.startX[i] = bin.getStartBoundary();
+                this.endX[i] = bin.getEndBoundary();
+                this.x[i] = (bin.getStartBoundary() + bin.getEndBoundary())
+                        / 2.;
+                if (type == HistogramType.FREQUENCY) {
+                    this.y[i] = bin.getCount();
+                }
+                else if (type == HistogramType.RELATIVE_FREQUENCY) {
+                    this.y[i] = bin.getCount() / (double) total;
+                }
+                else if (type == HistogramType.SCALE_AREA_TO_1) {
+                    this.y[i] = bin.getCount() / (binWidth * total);
+                }
+                else { // pretty sure this shouldn't ever happen
+                    throw new IllegalStateException();
+                }
+            }
+        }
+    }
+
 }
@@ -31,6 +31,7 @@
  *
  * Original Author:  David Gilbert (for Object Refinery Limited);
  * Contributor(s):   Nicolas Brodu;
+ *                   agent;
  *
  * Changes
  * -------
@@ -56,6 +57,8 @@
  * 05-Sep-2006 : Added MarkerChangeListener support (DG);
  * 26-Sep-2007 : Fix for serialization bug 1802195 (DG);
  * 02-Jul-2013 : Use ParamChecks (DG);
+ * 19-Oct-2026 : Create the listener list lazily, skip change events when
+ *               there are no listeners and added setNotify() (AG);
  *
  */
 
@@ -70,6 +73,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.util.EventListener;
 
 import javax.swing.event.EventListenerList;
@@ -138,9 +142,21 @@ public abstract class Marker implements Cloneable, Serializable {
      */
     private LengthAdjustmentType labelOffsetType;
 
-    /** Storage for registered change listeners. */
+    /**
+     * Storage for registered change listeners (created when the first
+     * listener is registered, so this can be {@code null}).
+     */
     private transient EventListenerList listenerList;
 
+    /** A flag that controls whether or not change events are sent. */
+    private transient boolean notify;
+
+    /**
+     * A flag recording that the marker changed while {@code notify} was
+     * switched off.
+     */
+    private transient boolean changePending;
+
     /**
      * Creates a new marker with default attributes.
      */
@@ -193,7 +209,7 @@ public abstract class Marker implements Cloneable, Serializable {
         this.labelOffsetType = LengthAdjustmentType.CONTRACT;
         this.labelTextAnchor = TextAnchor.CENTER;
 
-        this.listenerList = new EventListenerList();
+        this.notify = true;
     }
 
     /**
@@ -217,7 +233,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setPaint(Paint paint) {
         ParamChecks.nullNotPermitted(paint, "paint");
         this.paint = paint;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -241,7 +257,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setStroke(Stroke stroke) {
         ParamChecks.nullNotPermitted(stroke, "stroke");
         this.stroke = stroke;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -264,7 +280,7 @@ public abstract class Marker implements Cloneable, Serializable {
      */
     public void setOutlinePaint(Paint paint) {
         this.outlinePaint = paint;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -287,7 +303,7 @@ public abstract class Marker implements Cloneable, Serializable {
      */
     public void setOutlineStroke(Stroke stroke) {
         this.outlineStroke = stroke;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -317,7 +333,7 @@ public abstract class Marker implements Cloneable, Serializable {
                     "The 'alpha' value must be in the range 0.0f to 1.0f");
         }
         this.alpha = alpha;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -340,7 +356,7 @@ public abstract class Marker implements Cloneable, Serializable {
      */
     public void setLabel(String label) {
         this.label = label;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -364,7 +380,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelFont(Font font) {
         ParamChecks.nullNotPermitted(font, "font");
         this.labelFont = font;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -388,7 +404,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelPaint(Paint paint) {
         ParamChecks.nullNotPermitted(paint, "paint");
         this.labelPaint = paint;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
     
     /**
@@ -438,7 +454,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelAnchor(RectangleAnchor anchor) {
         ParamChecks.nullNotPermitted(anchor, "anchor");
         this.labelAnchor = anchor;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -462,7 +478,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelOffset(RectangleInsets offset) {
         ParamChecks.nullNotPermitted(offset, "offset");
         this.labelOffset = offset;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -486,7 +502,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelOffsetType(LengthAdjustmentType adj) {
         ParamChecks.nullNotPermitted(adj, "adj");
         this.labelOffsetType = adj;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -510,7 +526,7 @@ public abstract class Marker implements Cloneable, Serializable {
     public void setLabelTextAnchor(TextAnchor anchor) {
         ParamChecks.nullNotPermitted(anchor, "anchor");
         this.labelTextAnchor = anchor;
-        notifyListeners(new MarkerChangeEvent(this));
+        fireChangeEvent();
     }
 
     /**
@@ -523,6 +539,9 @@ public abstract class Marker implements Cloneable, Serializable {
      * @since 1.0.3
      */
     public void addChangeListener(MarkerChangeListener listener) {
+        if (this.listenerList == null) {
+            this.listenerList = new EventListenerList();
+        }
         this.listenerList.add(MarkerChangeListener.class, listener);
     }
 
@@ -536,7 +555,9 @@ public abstract class Marker implements Cloneable, Serializable {
      * @since 1.0.3
      */
     public void removeChangeListener(MarkerChangeListener listener) {
-        this.listenerList.remove(MarkerChangeListener.class, listener);
+        if (this.listenerList != null) {
+            this.listenerList.remove(MarkerChangeListener.class, listener);
+        }
     }
 
     /**
@@ -548,6 +569,9 @@ public abstract class Marker implements Cloneable, Serializable {
      */
     public void notifyListeners(MarkerChangeEvent event) {
 
+        if (this.listenerList == null) {
+            return;
+        }
         Object[] listeners = this.listenerList.getListenerList();
         for (int i = listeners.length - 2; i >= 0; i -= 2) {
             if (listeners[i] == MarkerChangeListener.class) {
@@ -567,9 +591,61 @@ public abstract class Marker implements Cloneable, Serializable {
      * @since 1.0.3
      */
     public EventListener[] getListeners(Class listenerType) {
+        if (this.listenerList == null) {
+            return (EventListener[]) Array.newInstance(listenerType, 0);
+        }
         return this.listenerList.getListeners(listenerType);
     }
 
+    /**
+     * Returns the flag that controls whether or not change events are sent to registered listeners.
+     *
+     * @return A boolean.
+     *
+     * @see #setNotify(boolean)
+     *
+     * @since 1.0.20
+     */
+    public boolean isNotify() {
+        return this.notify;
+    }
+
+    /**
+     * Sets a flag that controls whether or not listeners receive {@link MarkerChangeEvent} notifications.
+     * While the flag is off, any number of attribute changes are recorded, and a single event is sent when the flag is switched back on.
+     *
+     * @param notify  a boolean.
+     *
+     * @see #isNotify()
+     *
+     * @since 1.0.20
+     */
+    public void setNotify(boolean notify) {
+        this.notify = notify;
+        if (notify && this.changePending) {
+            this.changePending = false;
+            fireChangeEvent();
+        }
+    }
+
+    /**
+     * Sends a {@link MarkerChangeEvent} to all registered listeners, unless notification is switched off.
+     * No event is created if there are no listeners.
+     *
+     * @since 1.0.20
+     */
+    protected void fireChangeEvent() {
+        if (!this.notify) {
+            this.changePending = true;
+            return;
+        }
+        if (this.listenerList == null
+                || this.listenerList.getListenerCount() == 0) {
+            return;
+        }
+        notifyListeners(new MarkerChangeEvent(this));
+    }
+
     /**
      * Tests the marker for equality with an arbitrary object.
      *
@@ -672,7 +748,7 @@ public abstract class Marker implements Cloneable, Serializable {
         this.outlinePaint = SerialUtilities.readPaint(stream);
         this.outlineStroke = SerialUtilities.readStroke(stream);
         this.labelPaint = SerialUtilities.readPaint(stream);
-        this.listenerList = new EventListenerList();
+        this.notify = true;
     }
 
 }
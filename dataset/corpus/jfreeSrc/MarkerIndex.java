@@ -0,0 +1,427 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ----------------
+ * MarkerIndex.java
+ * ----------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.plot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EventListener;
+import java.util.List;
+
+import javax.swing.event.EventListenerList;
+
+import org.jfree.chart.event.MarkerChangeEvent;
+import org.jfree.chart.event.MarkerChangeListener;
+import org.jfree.chart.util.ParamChecks;
+import org.jfree.data.Range;
+
+/**
+ * A collection of {@link ValueMarker} and {@link IntervalMarker} instances
+ * that can efficiently answer the question "which markers are visible in
+ * this range?".
+ * <br><br>
+ * The markers are held in an interval tree (a balanced tree over the markers
+ * sorted by start value, where each node also records the largest end value
+ * in its subtree), so a query costs O(log n + k) for k matching markers
+ * rather than a test of every marker.  The tree is rebuilt lazily on the
+ * first query after markers are added, removed or changed.
+ * <br><br>
+ * The index registers itself as a listener on every marker it holds and
+ * passes marker changes on to its own listeners.  Calling
+ * {@code setNotify(false)} before restyling many markers and
+ * {@code setNotify(true)} afterwards coalesces all the changes into a single
+ * {@link MarkerChangeEvent}.
+ * <br><br>
+ * Instances of this class are not thread-safe.
+ *
+ * @since 1.0.20
+ */
+public class MarkerIndex implements MarkerChangeListener {
+
+    /** Orders entries by start value. */
+    private static final Comparator<Entry> START_ORDER
+            = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return Double.compare(e1.start, e2.start);
+        }
+    };
+
+    /** The markers, in the order they were added. */
+    private List<Marker> markers;
+
+    /** The tree entries, sorted by start value (null when stale). */
+    private Entry[] entries;
+
+    /**
+     * The largest end value in the subtree rooted at each index of
+     * {@code entries}.
+     */
+    private double[] maxEnd;
+
+    /** Storage for registered change listeners. */
+    private EventListenerList listenerList;
+
+    /** A flag that controls whether or not events are sent to listeners. */
+    private boolean notify;
+
+    /** The last event received while notification was switched off. */
+    private MarkerChangeEvent pendingEvent;
+
+    /**
+     * Creates a new empty index.
+     */
+    public MarkerIndex() {
+        this.markers = new ArrayList<Marker>();
+        this.listenerList = new EventListenerList();
+        this.notify = true;
+    }
+
+    /**
+     * Returns the number of markers in the index.
+     *
+     * @return The marker count.
+     */
+    public int getMarkerCount() {
+        return this.markers.size();
+    }
+
+    /**
+     * Returns an unmodifiable list of the markers, in the order they were added.
+     *
+     * @return The markers (never {@code null}).
+     */
+    public List<Marker> getMarkers() {
+        return Collections.unmodifiableList(this.markers);
+    }
+
+    /**
+     * Adds a marker to the index and registers the index as a listener on the marker.
+     *
+     * @param marker  the marker ({@code null} not permitted).
+     *
+     * @throws IllegalArgumentException if {@code marker} is not a {@link ValueMarker} or {@link IntervalMarker}.
+     */
+    public void add(Marker marker) {
+        ParamChecks.nullNotPermitted(marker, "marker");
+        if (!(marker instanceof ValueMarker)
+                && !(marker instanceof IntervalMarker)) {
+            throw new IllegalArgumentException(
+                    "Only ValueMarker and IntervalMarker can be indexed.");
+        }
+        this.markers.add(marker);
+        marker.addChangeListener(this);
+        this.entries = null;
+    }
+
+    /**
+     * Removes a marker from the index.  Markers are matched by identity
+     * rather than with {@code equals()}, since the index listens to each
+     * marker instance and equal markers can be indexed separately.
+     *
+     * @param marker  the marker.
+     *
+     * @return A boolean indicating whether or not the marker was removed.
+     */
+    public boolean remove(Marker marker) {
+        for (int i = 0; i < this.markers.size(); i++) {
+            if (this.markers.get(i) == marker) {
+                this.markers.remove(i);
+                marker.removeChangeListener(this);
+                this.entries = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all markers from the index.
+     */
+    public void clear() {
+        for (Marker marker : this.markers) {
+            marker.removeChangeListener(this);
+        }
+        this.markers.clear();
+        this.entries = null;
+    }
+
+    /**
+     * Returns the markers that are visible in the specified range.  A
+     * {@link ValueMarker} is visible if the range contains its value, an
+     * {@link IntervalMarker} is visible if the range intersects its interval
+     * (see {@link Range#intersects(double, double)}).
+     *
+     * @param range  the range ({@code null} not permitted).
+     *
+     * @return A new list of markers, in order of increasing start value.
+     */
+    public List<Marker> getMarkers(Range range) {
+        ParamChecks.nullNotPermitted(range, "range");
+        List<Marker> result = new ArrayList<Marker>();
+        if (this.markers.isEmpty()) {
+            return result;
+        }
+        if (this.entries == null) {
+            rebuild();
+        }
+        collect(0, this.entries.length, range, result);
+        return result;
+    }
+
+    /**
+     * Adds the markers in the subtree spanning {@code entries[lo, hi)} that
+     * are visible in {@code range} to {@code result}.
+     *
+     * @param lo  the first index (inclusive).
+     * @param hi  the last index (exclusive).
+     * @param range  the range.
+     * @param result  the list to add matches to.
+     */
+    private void collect(int lo, int hi, Range range, List<Marker> result) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.maxEnd[mid] < range.getLowerBound()) {
+                // nothing in this subtree reaches the range
+                return;
+            }
+            collect(lo, mid, range, result);
+            Entry e = this.entries[mid];
+            if (e.start > range.getUpperBound()) {
+                // everything to the right starts even later
+                return;
+            }
+            if (e.isVisible(range)) {
+                result.add(e.marker);
+            }
+            lo = mid + 1;
+        }
+    }
+
+    /**
+     * Rebuilds the interval tree from the current marker values.
+     */
+    private void rebuild() {
+        Entry[] e = new Entry[this.markers.size()];
+        int count = 0;
+        for (Marker marker : this.markers) {
+            Entry entry = new Entry(marker);
+            // markers with NaN values are never visible, so leave them out
+            if (!Double.isNaN(entry.start) && !Double.isNaN(entry.end)) {
+                e[count++] = entry;
+            }
+        }
+        if (count < e.length) {
+            e = Arrays.copyOf(e, count);
+        }
+        Arrays.sort(e, START_ORDER);
+        this.entries = e;
+        this.maxEnd = new double[count];
+        computeMaxEnd(0, count);
+    }
+
+    /**
+     * Fills {@code maxEnd} for the subtree spanning {@code entries[lo, hi)}.
+     *
+     * @param lo  the first index (inclusive).
+     * @param hi  the last index (exclusive).
+     *
+     * @return The largest end value in the subtree.
+     */
+    private double computeMaxEnd(int lo, int hi) {
+        if (lo >= hi) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        int mid = (lo + hi) >>> 1;
+        double m = Math.max(this.entries[mid].end,
+                Math.max(computeMaxEnd(lo, mid), computeMaxEnd(mid + 1, hi)));
+        this.maxEnd[mid] = m;
+        return m;
+    }
+
+    /**
+     * Returns the flag that controls whether or not change events are sent to registered listeners.
+     *
+     * @return A boolean.
+     *
+     * @see #setNotify(boolean)
+     */
+    public boolean isNotify() {
+        return this.notify;
+    }
+
+    /**
+     * Sets a flag that controls whether or not listeners receive {@link MarkerChangeEvent} notifications.
+     * If the flag is switched back on and markers changed in the meantime, a single event is sent.
+     *
+     * @param notify  a boolean.
+     *
+     * @see #isNotify()
+     */
+    public void setNotify(boolean notify) {
+        this.notify = notify;
+        if (notify && this.pendingEvent != null) {
+            MarkerChangeEvent event = this.pendingEvent;
+            this.pendingEvent = null;
+            notifyListeners(event);
+        }
+    }
+
+    /**
+     * Receives notification of a change to one of the indexed markers.
+     *
+     * @param event  the event.
+     */
+    @Override
+    public void markerChanged(MarkerChangeEvent event) {
+        this.entries = null;
+        if (this.notify) {
+            notifyListeners(event);
+        }
+        else {
+            this.pendingEvent = event;
+        }
+    }
+
+    /**
+     * Registers an object for notification of changes to the indexed markers.
+     *
+     * @param listener  the object to be registered.
+     *
+     * @see #removeChangeListener(MarkerChangeListener)
+     */
+    public void addChangeListener(MarkerChangeListener listener) {
+        this.listenerList.add(MarkerChangeListener.class, listener);
+    }
+
+    /**
+     * Unregisters an object for notification of changes to the indexed markers.
+     *
+     * @param listener  the object to be unregistered.
+     *
+     * @see #addChangeListener(MarkerChangeListener)
+     */
+    public void removeChangeListener(MarkerChangeListener listener) {
+        this.listenerList.remove(MarkerChangeListener.class, listener);
+    }
+
+    /**
+     * Returns an array containing all the listeners of the specified type.
+     *
+     * @param listenerType  the listener type.
+     *
+     * @return The array of listeners.
+     */
+    public EventListener[] getListeners(Class listenerType) {
+        return this.listenerList.getListeners(listenerType);
+    }
+
+    /**
+     * Notifies all registered listeners that an indexed marker has been modified.
+     *
+     * @param event  information about the change event.
+     */
+    protected void notifyListeners(MarkerChangeEvent event) {
+        Object[] listeners = this.listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == MarkerChangeListener.class) {
+                ((MarkerChangeListener) listeners[i + 1]).markerChanged(event);
+            }
+        }
+    }
+
+    /**
+     * A marker together with the interval it covers, captured when the tree
+     * is built.
+     */
+    private static final class Entry {
+
+        /** The marker. */
+        final Marker marker;
+
+        /** The start value. */
+        final double start;
+
+        /** The end value. */
+        final double end;
+
+        /** A flag indicating whether the marker is a single value. */
+        final boolean isValue;
+
+        /**
+         * Creates an entry for a marker.
+         *
+         * @param marker  the marker.
+         */
+        Entry(Marker marker) {
+            this.marker = marker;
+            if (marker instanceof ValueMarker) {
+                double v = ((ValueMarker) marker).getValue();
+                this.start = v;
+                this.end = v;
+                this.isValue = true;
+            }
+            else {
+                IntervalMarker im = (IntervalMarker) marker;
+                this.start = Math.min(im.getStartValue(), im.getEndValue());
+                this.end = Math.max(im.getStartValue(), im.getEndValue());
+                this.isValue = false;
+            }
+        }
+
+        /**
+         * Returns {@code true} if the marker would be drawn for an axis with
+         * the specified range.
+         *
+         * @param range  the range.
+         *
+         * @return A boolean.
+         */
+        boolean isVisible(Range range) {
+            if (this.isValue) {
+                return range.contains(this.start);
+            }
+            return range.intersects(this.start, this.end);
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------------
+ * RangeAccumulator.java
+ * ---------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.data;
+
+import java.util.Iterator;
+import org.jfree.chart.util.ParamChecks;
+
+/**
+ * A mutable accumulator for the bounds of a set of values and ranges.
+ * Folding values into an accumulator allocates nothing, a {@link Range} is
+ * only created when {@link #getRange()} is called.
+ * <P>
+ * <code>Double.NaN</code> values are handled in the same way as
+ * {@link Range#combineIgnoringNaN(Range, Range)}.
+ * <P>
+ * Instances of this class are not thread-safe.
+ *
+ * @since 1.0.20
+ */
+public class RangeAccumulator {
+
+    /** The smallest lower bound seen so far (NaN if none). */
+    private double lower;
+
+    /** The largest upper bound seen so far (NaN if none). */
+    private double upper;
+
+    /**
+     * Creates a new, empty accumulator.
+     */
+    public RangeAccumulator() {
+        reset();
+    }
+
+    /**
+     * Clears the accumulator so that it can be reused.
+     */
+    public void reset() {
+        this.lower = Double.NaN;
+        this.upper = Double.NaN;
+    }
+
+    /**
+     * Returns <code>true</code> if no non-NaN value has been added since the accumulator was created or last reset.
+     *
+     * @return A boolean.
+     */
+    public boolean isEmpty() {
+        return Double.isNaN(this.lower) && Double.isNaN(this.upper);
+    }
+
+    /**
+     * Returns the smallest lower bound seen so far.
+     *
+     * @return The lower bound (possibly <code>Double.NaN</code>).
+     */
+    public double getLowerBound() {
+        return this.lower;
+    }
+
+    /**
+     * Returns the largest upper bound seen so far.
+     *
+     * @return The upper bound (possibly <code>Double.NaN</code>).
+     */
+    public double getUpperBound() {
+        return this.upper;
+    }
+
+    /**
+     * Includes a single value, <code>Double.NaN</code> is ignored.
+     *
+     * @param value  the value.
+     */
+    public void add(double value) {
+        add(value, value);
+    }
+
+    /**
+     * Includes all the values in an array, <code>Double.NaN</code> values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     */
+    public void add(double[] values) {
+        ParamChecks.nullNotPermitted(values, "values");
+        add(values, 0, values.length);
+    }
+
+    /**
+     * Includes a slice of an array, <code>Double.NaN</code> values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param offset  the index of the first value to include.
+     * @param length  the number of values to include.
+     */
+    public void add(double[] values, int offset, int length) {
+        ParamChecks.nullNotPermitted(values, "values");
+        if (offset < 0 || length < 0 || offset + length > values.length) {
+            throw new IndexOutOfBoundsException("Requires offset >= 0, "
+                    + "length >= 0 and offset + length <= values.length.");
+        }
+        double l = this.lower;
+        double u = this.upper;
+        int i = offset;
+        int end = offset + length;
+        // skip to the first usable value when nothing has been seen yet, so
+        // that the main loop can use plain comparisons
+        if (Double.isNaN(l) || Double.isNaN(u)) {
+            while (i < end && Double.isNaN(values[i])) {
+                i++;
+            }
+            if (i == end) {
+                return;
+            }
+            if (Double.isNaN(l) || values[i] < l) {
+                l = values[i];
+            }
+            if (Double.isNaN(u) || values[i] > u) {
+                u = values[i];
+            }
+            i++;
+        }
+        for (; i < end; i++) {
+            double v = values[i];
+            // comparisons against NaN are false, so NaN values drop through
+            if (v < l) {
+                l = v;
+            }
+            if (v > u) {
+                u = v;
+            }
+        }
+        this.lower = l;
+        this.upper = u;
+    }
+
+    /**
+     * Includes a pair of bounds, for example the start and end x-values of
+     * an interval item.  Either bound can be <code>Double.NaN</code>, in
+     * which case it is ignored.
+     *
+     * @param lowerBound  the lower bound.
+     * @param upperBound  the upper bound.
+     */
+    public void add(double lowerBound, double upperBound) {
+        if (!Double.isNaN(lowerBound) && (Double.isNaN(this.lower)
+                || lowerBound < this.lower)) {
+            this.lower = lowerBound;
+        }
+        if (!Double.isNaN(upperBound) && (Double.isNaN(this.upper)
+                || upperBound > this.upper)) {
+            this.upper = upperBound;
+        }
+    }
+
+    /**
+     * Includes the bounds of a range.
+     *
+     * @param range  the range (<code>null</code> permitted, in which case it is ignored).
+     */
+    public void add(Range range) {
+        if (range != null) {
+            add(range.getLowerBound(), range.getUpperBound());
+        }
+    }
+
+    /**
+     * Includes the bounds of every range returned by an iterator.
+     *
+     * @param ranges  the ranges (<code>null</code> not permitted, <code>null</code> elements are ignored).
+     */
+    public void addAll(Iterator<? extends Range> ranges) {
+        ParamChecks.nullNotPermitted(ranges, "ranges");
+        while (ranges.hasNext()) {
+            add(ranges.next());
+        }
+    }
+
+    /**
+     * Includes the bounds of every range in a collection.
+     *
+     * @param ranges  the ranges (<code>null</code> not permitted, <code>null</code> elements are ignored).
+     */
+    public void addAll(Iterable<? extends Range> ranges) {
+        ParamChecks.nullNotPermitted(ranges, "ranges");
+        addAll(ranges.iterator());
+    }
+
+    /**
+     * Includes the bounds accumulated by another accumulator.
+     *
+     * @param other  the other accumulator (<code>null</code> not permitted).
+     */
+    public void add(RangeAccumulator other) {
+        ParamChecks.nullNotPermitted(other, "other");
+        add(other.lower, other.upper);
+    }
+
+    /**
+     * Returns the range spanning everything that has been added.
+     *
+     * @return A new range, or <code>null</code> if the accumulator is empty.
+     */
+    public Range getRange() {
+        if (isEmpty()) {
+            return null;
+        }
+        return new Range(this.lower, this.upper);
+    }
+
+    /**
+     * Returns the range spanning all the values in an array, ignoring <code>Double.NaN</code> values.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     *
+     * @return A new range, or <code>null</code> if there are no non-NaN values.
+     */
+    public static Range findRange(double[] values) {
+        RangeAccumulator acc = new RangeAccumulator();
+        acc.add(values);
+        return acc.getRange();
+    }
+
+    /**
+     * Returns the range spanning all the ranges in a collection.  The result
+     * is the same as folding the ranges with
+     * {@link Range#combineIgnoringNaN(Range, Range)}, but only one
+     * {@link Range} is allocated.
+     *
+     * @param ranges  the ranges (<code>null</code> not permitted).
+     *
+     * @return A new range (possibly <code>null</code>).
+     */
+    public static Range combineIgnoringNaN(Iterable<? extends Range> ranges) {
+        RangeAccumulator acc = new RangeAccumulator();
+        acc.addAll(ranges);
+        return acc.getRange();
+    }
+
+    /**
+     * Returns a string representation of this accumulator.
+     *
+     * @return A string.
+     */
+    @Override
+    public String toString() {
+        return "RangeAccumulator[" + this.lower + "," + this.upper + "]";
+    }
+
+}
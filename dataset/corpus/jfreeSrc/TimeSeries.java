@@ -32,6 +32,7 @@
  * Original Author:  David Gilbert (for Object Refinery Limited);
  * Contributor(s):   Bryan Scott;
  *                   Nick Guenther;
+ *                   agent;
  *
  * Changes
  * -------
@@ -85,6 +86,8 @@
  * 03-Dec-2011 : Fixed bug 3446965 which affects the y-range calculation for 
  *               the series (DG);
  * 02-Jul-2013 : Use ParamChecks (DG);
+ * 19-Oct-2026 : Merge sorted series in a single pass in addAndOrUpdate() and
+ *               getTimePeriodsUniqueToOtherSeries() (AG);
  * 
  */
 
@@ -550,10 +553,28 @@ public class TimeSeries extends Series implements Cloneable, Serializable {
      */
     public Collection getTimePeriodsUniqueToOtherSeries(TimeSeries series) {
         Collection result = new java.util.ArrayList();
-        for (int i = 0; i < series.getItemCount(); i++) {
-            RegularTimePeriod period = series.getTimePeriod(i);
-            int index = getIndex(period);
-            if (index < 0) {
+        if (this.timePeriodClass != null && series.timePeriodClass != null
+                && !this.timePeriodClass.equals(series.timePeriodClass)) {
+            // periods of different types don't have a consistent ordering,
+            // so look each one up individually
+            for (int i = 0; i < series.getItemCount(); i++) {
+                RegularTimePeriod period = series.getTimePeriod(i);
+                int index = getIndex(period);
+                if (index < 0) {
+                    result.add(period);
+                }
+            }
+            return result;
+        }
+        // both series are sorted by period, so walk them together
+        int count = getItemCount();
+        int i = 0;
+        for (int j = 0; j < series.getItemCount(); j++) {
+            RegularTimePeriod period = series.getTimePeriod(j);
+            while (i < count && getTimePeriod(i).compareTo(period) < 0) {
+                i++;
+            }
+            if (i == count || getTimePeriod(i).compareTo(period) != 0) {
                 result.add(period);
             }
         }
@@ -792,22 +813,77 @@ public class TimeSeries extends Series implements Cloneable, Serializable {
     /**
      * Adds or updates data from one series to another.
 	 *  Returns another series containing the values that were overwritten.
+     * <P>
+     * Both series are already sorted by time period, so they are merged in a single pass and a single {@link SeriesChangeEvent} is sent to registered listeners (if the other series contains any items).
+     * The maximum item count and age are applied once the merge is complete.
      *
-     * @param series  the series to merge with this.
+     * @param series  the series to merge with this (<code>null</code> not permitted).
      *
      * @return A series containing the values that were overwritten.
      */
     public TimeSeries addAndOrUpdate(TimeSeries series) {
+        ParamChecks.nullNotPermitted(series, "series");
         TimeSeries overwritten = new TimeSeries("Overwritten values from: "
                 + getKey());
-        for (int i = 0; i < series.getItemCount(); i++) {
-            TimeSeriesDataItem item = series.getRawDataItem(i);
-            TimeSeriesDataItem oldItem = addOrUpdate(item.getPeriod(),
-                    item.getValue());
-            if (oldItem != null) {
-                overwritten.add(oldItem);
+        int otherCount = series.getItemCount();
+        if (otherCount == 0) {
+            return overwritten;
+        }
+        Class periodClass = series.getTimePeriod(0).getClass();
+        if (this.timePeriodClass == null) {
+            this.timePeriodClass = periodClass;
+        }
+        else if (!this.timePeriodClass.equals(periodClass)) {
+            String msg = "You are trying to add data where the time "
+                    + "period class is " + periodClass.getName()
+                    + ", but the TimeSeries is expecting an instance of "
+                    + this.timePeriodClass.getName() + ".";
+            throw new SeriesException(msg);
+        }
+
+        int count = this.data.size();
+        List merged = new java.util.ArrayList(count + otherCount);
+        int i = 0;
+        int j = 0;
+        while (i < count && j < otherCount) {
+            TimeSeriesDataItem existing
+                    = (TimeSeriesDataItem) this.data.get(i);
+            TimeSeriesDataItem item = series.getRawDataItem(j);
+            int c = existing.getPeriod().compareTo(item.getPeriod());
+            if (c < 0) {
+                merged.add(existing);
+                i++;
             }
+            else if (c > 0) {
+                merged.add(item.clone());
+                j++;
+            }
+            else {
+                overwritten.add(existing, false);  // adds a copy
+                existing.setValue(item.getValue());
+                merged.add(existing);
+                i++;
+                j++;
+            }
+        }
+        while (i < count) {
+            merged.add(this.data.get(i++));
         }
+        while (j < otherCount) {
+            merged.add(series.getRawDataItem(j++).clone());
+        }
+
+        // keep the most recent items if the maximum item count is exceeded
+        int excess = merged.size() - this.maximumItemCount;
+        if (excess > 0) {
+            merged.subList(0, excess).clear();
+        }
+        this.data = merged;
+        removeAgedItems(false);  // remove old items if necessary, but
+                                 // don't notify anyone, because that
+                                 // happens next anyway...
+        updateMinMaxYByIteration();
+        fireSeriesChanged();
         return overwritten;
     }
 
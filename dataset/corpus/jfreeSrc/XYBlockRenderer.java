@@ -30,7 +30,7 @@
  * (C) Copyright 2006-2014, by Object Refinery Limited.
  *
  * Original Author:  David Gilbert (for Object Refinery Limited);
- * Contributor(s):   -;
+ * Contributor(s):   agent;
  *
  * Changes
  * -------
@@ -41,6 +41,7 @@
  * 07-Apr-2008 : Added entity collection code (DG);
  * 22-Apr-2008 : Implemented PublicCloneable (DG);
  * 03-Jul-2013 : Use ParamChecks (DG);
+ * 19-Oct-2026 : Cache the dataset bounds between dataset changes (AG);
  *
  */
 
@@ -63,6 +64,8 @@ import org.jfree.chart.renderer.LookupPaintScale;
 import org.jfree.chart.renderer.PaintScale;
 import org.jfree.chart.util.ParamChecks;
 import org.jfree.data.Range;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
 import org.jfree.data.general.DatasetUtilities;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.data.xy.XYZDataset;
@@ -109,6 +112,30 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
     /** The paint scale. */
     private PaintScale paintScale;
 
+    /** The dataset that the cached bounds belong to. */
+    private transient XYDataset boundsDataset;
+
+    /**
+     * Counts the change events received from {@code boundsDataset}, the
+     * cached bounds are valid while their count matches this one.
+     */
+    private transient int boundsChangeCount;
+
+    /** Listens for changes to {@code boundsDataset}. */
+    private transient DatasetChangeListener boundsListener;
+
+    /** The cached x-value bounds (before block offsets are applied). */
+    private transient Range domainBounds;
+
+    /** The change count at which {@code domainBounds} was computed. */
+    private transient int domainBoundsCount;
+
+    /** The cached y-value bounds (before block offsets are applied). */
+    private transient Range rangeBounds;
+
+    /** The change count at which {@code rangeBounds} was computed. */
+    private transient int rangeBoundsCount;
+
     /**
      * Creates a new <code>XYBlockRenderer</code> instance with default attributes.
      */
@@ -270,8 +297,129 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
         }
     }
 
+    /**
+     * Sets the plot that the renderer is assigned to.  The cached dataset
+     * bounds are discarded and the renderer stops listening to the dataset
+     * when it is removed from its plot or moved to another plot.
+     *
+     * @param plot  the plot (<code>null</code> permitted).
+     */
+    @Override
+    public void setPlot(XYPlot plot) {
+        if (plot != getPlot()) {
+            detachBoundsCache();
+        }
+        super.setPlot(plot);
+    }
+
+    /**
+     * Makes the bounds cache refer to the specified dataset.  The renderer
+     * registers one listener with the dataset the first time it is asked
+     * for its bounds, and moves the listener when it is asked about a
+     * different dataset.  The plot has already registered its own listener
+     * at that point, and datasets notify the most recently registered
+     * listener first, so the cache is invalidated before the plot
+     * configures its axes again.
+     *
+     * @param dataset  the dataset (<code>null</code> not permitted).
+     */
+    private void useBoundsCache(XYDataset dataset) {
+        if (this.boundsDataset == dataset) {
+            return;
+        }
+        detachBoundsCache();
+        if (this.boundsListener == null) {
+            this.boundsListener = new DatasetChangeListener() {
+                @Override
+                public void datasetChanged(DatasetChangeEvent event) {
+                    boundsDatasetChanged();
+                }
+            };
+        }
+        dataset.addChangeListener(this.boundsListener);
+        this.boundsDataset = dataset;
+        // invalidates the bounds cached for any earlier dataset
+        this.boundsChangeCount++;
+    }
+
+    /**
+     * Stops listening to the dataset of the bounds cache and discards the
+     * cached bounds.
+     */
+    private void detachBoundsCache() {
+        if (this.boundsDataset != null) {
+            this.boundsDataset.removeChangeListener(this.boundsListener);
+            this.boundsDataset = null;
+            this.domainBounds = null;
+            this.rangeBounds = null;
+        }
+    }
+
+    /**
+     * Called when the dataset of the bounds cache changes.  The cached bounds
+     * are only invalidated here, they are computed again when the plot next
+     * asks for them.
+     */
+    private void boundsDatasetChanged() {
+        XYPlot plot = getPlot();
+        if (plot == null
+                || plot.getRendererForDataset(this.boundsDataset) != this) {
+            // the renderer was replaced or the plot has a new dataset
+            detachBoundsCache();
+            return;
+        }
+        this.boundsChangeCount++;
+    }
+
+    /**
+     * Returns the bounds of the x-values in the dataset, from the cache if
+     * the dataset has not changed since they were computed.  Bounds are only
+     * cached while the renderer is assigned to a plot, so that a renderer
+     * without a plot does not leave a listener on the dataset.
+     *
+     * @param dataset  the dataset (<code>null</code> not permitted).
+     *
+     * @return The range (possibly <code>null</code>).
+     */
+    private Range getDataDomainBounds(XYDataset dataset) {
+        if (getPlot() == null) {
+            return DatasetUtilities.findDomainBounds(dataset, false);
+        }
+        useBoundsCache(dataset);
+        if (this.domainBoundsCount != this.boundsChangeCount) {
+            this.domainBounds = DatasetUtilities.findDomainBounds(dataset,
+                    false);
+            this.domainBoundsCount = this.boundsChangeCount;
+        }
+        return this.domainBounds;
+    }
+
+    /**
+     * Returns the bounds of the y-values in the dataset, from the cache if
+     * the dataset has not changed since they were computed.  Bounds are only
+     * cached while the renderer is assigned to a plot.
+     *
+     * @param dataset  the dataset (<code>null</code> not permitted).
+     *
+     * @return The range (possibly <code>null</code>).
+     */
+    private Range getDataRangeBounds(XYDataset dataset) {
+        if (getPlot() == null) {
+            return DatasetUtilities.findRangeBounds(dataset, false);
+        }
+        useBoundsCache(dataset);
+        if (this.rangeBoundsCount != this.boundsChangeCount) {
+            this.rangeBounds = DatasetUtilities.findRangeBounds(dataset,
+                    false);
+            this.rangeBoundsCount = this.boundsChangeCount;
+        }
+        return this.rangeBounds;
+    }
+
     /**
      * Returns the lower and upper bounds (range) of the x-values in the specified dataset.
+     * While the renderer is assigned to a plot, the bounds are cached until
+     * the dataset sends a change event.
      *
      * @param dataset  the dataset (<code>null</code> permitted).
      *
@@ -284,7 +432,7 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
         if (dataset == null) {
             return null;
         }
-        Range r = DatasetUtilities.findDomainBounds(dataset, false);
+        Range r = getDataDomainBounds(dataset);
         if (r == null) {
             return null;
         }
@@ -294,6 +442,8 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
 
     /**
      * Returns the range of values the renderer requires to display all the items from the specified dataset.
+     * While the renderer is assigned to a plot, the bounds are cached until
+     * the dataset sends a change event.
      *
      * @param dataset  the dataset (<code>null</code> permitted).
      *
@@ -304,7 +454,7 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
     @Override
     public Range findRangeBounds(XYDataset dataset) {
         if (dataset != null) {
-            Range r = DatasetUtilities.findRangeBounds(dataset, false);
+            Range r = getDataRangeBounds(dataset);
             if (r == null) {
                 return null;
             }
@@ -426,6 +576,11 @@ public class XYBlockRenderer extends AbstractXYItemRenderer
             PublicCloneable pc = (PublicCloneable) this.paintScale;
             clone.paintScale = (PaintScale) pc.clone();
         }
+        // the clone must register its own listener
+        clone.boundsDataset = null;
+        clone.boundsListener = null;
+        clone.domainBounds = null;
+        clone.rangeBounds = null;
         return clone;
     }
 
@@ -0,0 +1,177 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------------------
+ * BatchChartRendererTest.java
+ * ---------------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jfree.data.general.DatasetChangeListener;
+import org.jfree.data.general.DefaultPieDataset;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link BatchChartRenderer} class.
+ */
+public class BatchChartRendererTest {
+
+    /**
+     * Records the images written and the names of failed requests.  The
+     * sink is called on worker threads, so it only records and the test
+     * checks the results after render() returns.
+     */
+    static class RecordingSink implements ChartImageSink {
+
+        Map<String, byte[]> written = new ConcurrentHashMap<String, byte[]>();
+
+        List<String> failed = Collections.synchronizedList(
+                new ArrayList<String>());
+
+        @Override
+        public void write(ChartRenderRequest request, byte[] data)
+                throws IOException {
+            if (request.getName().startsWith("bad")) {
+                throw new IOException("Sink refused " + request.getName());
+            }
+            this.written.put(request.getName(), data);
+        }
+
+        @Override
+        public void failed(ChartRenderRequest request, Throwable cause) {
+            this.failed.add(request.getName());
+        }
+    }
+
+    /**
+     * Renders one shared pie chart many times on several threads.
+     */
+    @Test
+    public void testRenderSharedChart() throws InterruptedException {
+        DefaultPieDataset dataset = new DefaultPieDataset();
+        dataset.setValue("A", 1.0);
+        dataset.setValue("B", 2.0);
+        JFreeChart chart = ChartFactory.createPieChart("Test", dataset);
+        List<ChartRenderRequest> requests = new ArrayList<ChartRenderRequest>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(new ChartRenderRequest("chart" + i, chart, 200, 100));
+        }
+        requests.add(new ChartRenderRequest("bad", chart, 200, 100));
+        BatchChartRenderer renderer = new BatchChartRenderer(4);
+        RecordingSink sink = new RecordingSink();
+        try {
+            assertEquals(1, renderer.render(requests, sink));
+        }
+        finally {
+            renderer.shutdown();
+        }
+        assertEquals(20, sink.written.size());
+        for (byte[] data : sink.written.values()) {
+            // PNG signature
+            assertEquals((byte) 0x89, data[0]);
+            assertEquals((byte) 'P', data[1]);
+        }
+        assertEquals(Collections.singletonList("bad"), sink.failed);
+        assertEquals(20, renderer.getImageCount());
+        assertEquals(1, renderer.getFailureCount());
+        assertTrue(renderer.getByteCount() > 0);
+        assertTrue(renderer.getDrawNanos() > 0);
+    }
+
+    /**
+     * A pie dataset that counts its registered change listeners.  Clones
+     * are registered and removed on the worker threads.
+     */
+    static class ListenerCountingDataset extends DefaultPieDataset {
+
+        int listenerCount;
+
+        @Override
+        public synchronized void addChangeListener(
+                DatasetChangeListener listener) {
+            this.listenerCount++;
+            super.addChangeListener(listener);
+        }
+
+        @Override
+        public synchronized void removeChangeListener(
+                DatasetChangeListener listener) {
+            if (hasListener(listener)) {
+                this.listenerCount--;
+            }
+            super.removeChangeListener(listener);
+        }
+    }
+
+    /**
+     * The chart clones drawn for each request must not stay registered as
+     * listeners on the template's dataset.
+     */
+    @Test
+    public void testClonesAreDetachedFromDataset()
+            throws InterruptedException {
+        ListenerCountingDataset dataset = new ListenerCountingDataset();
+        dataset.setValue("A", 1.0);
+        dataset.setValue("B", 2.0);
+        JFreeChart chart = ChartFactory.createPieChart("Test", dataset);
+        int listeners = dataset.listenerCount;
+        List<ChartRenderRequest> requests = new ArrayList<ChartRenderRequest>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new ChartRenderRequest("chart" + i, chart, 100, 100));
+        }
+        BatchChartRenderer renderer = new BatchChartRenderer(4);
+        RecordingSink sink = new RecordingSink();
+        try {
+            assertEquals(0, renderer.render(requests, sink));
+        }
+        finally {
+            renderer.shutdown();
+        }
+        assertEquals(50, sink.written.size());
+        assertEquals(listeners, dataset.listenerCount);
+    }
+
+}
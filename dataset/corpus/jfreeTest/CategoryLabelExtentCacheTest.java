@@ -0,0 +1,156 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------------------------
+ * CategoryLabelExtentCacheTest.java
+ * ---------------------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.jfree.text.G2TextMeasurer;
+import org.jfree.text.TextBlock;
+import org.jfree.text.TextUtilities;
+import org.jfree.ui.RectangleEdge;
+import org.jfree.ui.Size2D;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CategoryLabelExtentCache} class.
+ */
+public class CategoryLabelExtentCacheTest {
+
+    private static final double EPSILON = 0.0001;
+
+    private static final Font FONT = new Font("SansSerif", Font.PLAIN, 12);
+
+    private Graphics2D g2;
+
+    @Before
+    public void setUp() {
+        BufferedImage image = new BufferedImage(200, 100,
+                BufferedImage.TYPE_INT_RGB);
+        this.g2 = image.createGraphics();
+        this.g2.setFont(FONT);
+    }
+
+    @After
+    public void tearDown() {
+        this.g2.dispose();
+    }
+
+    /**
+     * The cached extent matches the dimensions of the text block that the
+     * axis would create, and a rotation by 90 degrees swaps them.
+     */
+    @Test
+    public void testRotatedExtent() {
+        CategoryLabelExtentCache cache = new CategoryLabelExtentCache(10);
+        TextBlock block = TextUtilities.createTextBlock("Category 1", FONT,
+                Color.black, 1000f, 1, new G2TextMeasurer(this.g2));
+        Size2D expected = block.calculateDimensions(this.g2);
+        CategoryLabelPosition p = CategoryLabelPositions.UP_90.getLabelPosition(
+                RectangleEdge.BOTTOM);
+        Size2D s = cache.getExtent("Category 1", FONT, 1000f, 1, p, this.g2);
+        assertEquals(expected.getHeight(), s.getWidth(), EPSILON);
+        assertEquals(expected.getWidth(), s.getHeight(), EPSILON);
+
+        s = cache.getExtent("Category 1", FONT, 1000f, 1, 0.0, this.g2);
+        assertEquals(expected.getWidth(), s.getWidth(), EPSILON);
+        assertEquals(expected.getHeight(), s.getHeight(), EPSILON);
+    }
+
+    /**
+     * The width constraint and line limit are part of the key, so a label
+     * that wraps gets a different extent.
+     */
+    @Test
+    public void testWrappedExtent() {
+        CategoryLabelExtentCache cache = new CategoryLabelExtentCache(10);
+        String text = "A rather long category label";
+        Size2D oneLine = cache.getExtent(text, FONT, 1000f, 3, 0.0, this.g2);
+        float narrow = (float) (oneLine.getWidth() / 2.5);
+        Size2D wrapped = cache.getExtent(text, FONT, narrow, 3, 0.0, this.g2);
+        assertTrue(wrapped.getWidth() < oneLine.getWidth());
+        assertTrue(wrapped.getHeight() > oneLine.getHeight());
+
+        TextBlock block = TextUtilities.createTextBlock(text, FONT,
+                Color.black, narrow, 3, new G2TextMeasurer(this.g2));
+        Size2D expected = block.calculateDimensions(this.g2);
+        assertEquals(expected.getWidth(), wrapped.getWidth(), EPSILON);
+        assertEquals(expected.getHeight(), wrapped.getHeight(), EPSILON);
+
+        Size2D limited = cache.getExtent(text, FONT, narrow, 1, 0.0, this.g2);
+        assertEquals(oneLine.getHeight(), limited.getHeight(), EPSILON);
+        assertEquals(3, cache.getMissCount());
+    }
+
+    /**
+     * Some checks for the hit, miss and eviction counters.
+     */
+    @Test
+    public void testCounters() {
+        CategoryLabelExtentCache cache = new CategoryLabelExtentCache(2);
+        cache.getExtent("A", FONT, 100f, 1, 0.0, this.g2);
+        cache.getExtent("A", FONT, 100f, 1, 0.0, this.g2);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.getExtent("B", FONT, 100f, 1, 0.0, this.g2);
+        cache.getExtent("A", FONT, 100f, 1, 0.0, this.g2);
+        cache.getExtent("C", FONT, 100f, 1, 0.0, this.g2);
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        // "B" was the least recently used entry, so it was evicted
+        cache.getExtent("B", FONT, 100f, 1, 0.0, this.g2);
+        assertEquals(4, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+}
@@ -255,6 +255,33 @@ public class HistogramDatasetTest implements DatasetChangeListener {
         assertNotNull(this.lastEvent);
     }
 
+    /**
+     * The primitive accessors agree with the object accessors and follow
+     * changes to the histogram type.
+     */
+    @Test
+    public void testPrimitiveAccessors() {
+        double[] values = {1.0, 2.0, 3.0, 4.0, 6.0, 7.0, 8.0, 9.0};
+        HistogramDataset d = new HistogramDataset();
+        d.addSeries("Series 1", values, 2, 0.0, 10.0);
+        assertEquals(0.0, d.getStartXValue(0, 0), EPSILON);
+        assertEquals(5.0, d.getEndXValue(0, 0), EPSILON);
+        assertEquals(7.5, d.getXValue(0, 1), EPSILON);
+        assertEquals(4.0, d.getYValue(0, 0), EPSILON);
+        assertEquals(d.getY(0, 1).doubleValue(), d.getYValue(0, 1), EPSILON);
+
+        d.setType(HistogramType.RELATIVE_FREQUENCY);
+        assertEquals(0.5, d.getYValue(0, 0), EPSILON);
+        assertEquals(0.5, d.getStartYValue(0, 0), EPSILON);
+
+        d.setType(HistogramType.SCALE_AREA_TO_1);
+        assertEquals(0.1, d.getYValue(0, 1), EPSILON);
+
+        d.addSeries("Series 2", new double[] {1.0}, 1, 0.0, 2.0);
+        assertEquals(0.5, d.getEndYValue(1, 0), EPSILON);
+        assertEquals(0.1, d.getYValue(0, 0), EPSILON);
+    }
+
     /**
      * A reference to the last event received by the datasetChanged() method.
      */
@@ -0,0 +1,175 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * --------------------
+ * MarkerIndexTest.java
+ * --------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.chart.plot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jfree.chart.event.MarkerChangeEvent;
+import org.jfree.chart.event.MarkerChangeListener;
+import org.jfree.data.Range;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MarkerIndex} class.
+ */
+public class MarkerIndexTest implements MarkerChangeListener {
+
+    MarkerChangeEvent lastEvent;
+
+    int eventCount;
+
+    /**
+     * Some checks for the getMarkers(Range) method.
+     */
+    @Test
+    public void testGetMarkersInRange() {
+        MarkerIndex index = new MarkerIndex();
+        ValueMarker m1 = new ValueMarker(1.0);
+        ValueMarker m2 = new ValueMarker(5.0);
+        IntervalMarker m3 = new IntervalMarker(2.0, 4.0);
+        IntervalMarker m4 = new IntervalMarker(0.0, 10.0);
+        index.add(m1);
+        index.add(m2);
+        index.add(m3);
+        index.add(m4);
+        assertEquals(4, index.getMarkerCount());
+
+        assertEquals(Arrays.asList(m4, m1), index.getMarkers(
+                new Range(0.5, 1.5)));
+        assertEquals(Arrays.asList(m4, m3, m2), index.getMarkers(
+                new Range(3.0, 6.0)));
+        assertTrue(index.getMarkers(new Range(11.0, 12.0)).isEmpty());
+
+        // an interval that only touches the lower bound is not visible
+        List<Marker> markers = index.getMarkers(new Range(4.0, 4.5));
+        assertEquals(Arrays.<Marker>asList(m4), markers);
+    }
+
+    /**
+     * Changing a marker value is reflected in the next query.
+     */
+    @Test
+    public void testMarkerChangeUpdatesIndex() {
+        MarkerIndex index = new MarkerIndex();
+        ValueMarker m1 = new ValueMarker(1.0);
+        index.add(m1);
+        assertEquals(1, index.getMarkers(new Range(0.0, 2.0)).size());
+        m1.setValue(20.0);
+        assertTrue(index.getMarkers(new Range(0.0, 2.0)).isEmpty());
+        assertEquals(1, index.getMarkers(new Range(19.0, 21.0)).size());
+
+        assertTrue(index.remove(m1));
+        assertTrue(index.getMarkers(new Range(19.0, 21.0)).isEmpty());
+    }
+
+    /**
+     * Changes made while notification is off are sent as one event.
+     */
+    @Test
+    public void testCoalescedNotification() {
+        MarkerIndex index = new MarkerIndex();
+        ValueMarker m1 = new ValueMarker(1.0);
+        ValueMarker m2 = new ValueMarker(2.0);
+        index.add(m1);
+        index.add(m2);
+        index.addChangeListener(this);
+
+        index.setNotify(false);
+        m1.setPaint(Color.red);
+        m2.setPaint(Color.blue);
+        m2.setAlpha(0.5f);
+        assertEquals(0, this.eventCount);
+        assertNull(this.lastEvent);
+        index.setNotify(true);
+        assertEquals(1, this.eventCount);
+        assertSame(m2, this.lastEvent.getMarker());
+
+        m1.setPaint(Color.green);
+        assertEquals(2, this.eventCount);
+    }
+
+    /**
+     * Removing one of two equal markers removes that instance, and only
+     * stops listening to that instance.
+     */
+    @Test
+    public void testRemoveEqualMarkers() {
+        MarkerIndex index = new MarkerIndex();
+        ValueMarker m1 = new ValueMarker(5.0);
+        ValueMarker m2 = new ValueMarker(5.0);
+        assertTrue(m1.equals(m2));
+        index.add(m1);
+        index.add(m2);
+
+        assertTrue(index.remove(m2));
+        assertEquals(1, index.getMarkerCount());
+        assertSame(m1, index.getMarkers().get(0));
+        assertEquals(0, m2.getListeners(MarkerChangeListener.class).length);
+        assertEquals(1, m1.getListeners(MarkerChangeListener.class).length);
+
+        // the marker that is still indexed keeps the index up to date
+        m1.setValue(20.0);
+        List<Marker> visible = index.getMarkers(new Range(19.0, 21.0));
+        assertEquals(1, visible.size());
+        assertSame(m1, visible.get(0));
+
+        assertTrue(!index.remove(m2));
+    }
+
+    /**
+     * Records the last event.
+     *
+     * @param event  the event.
+     */
+    @Override
+    public void markerChanged(MarkerChangeEvent event) {
+        this.lastEvent = event;
+        this.eventCount++;
+    }
+
+}
@@ -42,6 +42,7 @@ package org.jfree.chart.plot;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -444,6 +445,30 @@ public class MarkerTest implements MarkerChangeListener {
         assertFalse(Arrays.asList(listeners2).contains(plot));
     }
 
+    /**
+     * Changes made while notification is switched off result in a single
+     * event when it is switched back on.
+     */
+    @Test
+    public void testSetNotify() {
+        ValueMarker m = new ValueMarker(1.1);
+        assertEquals(0, m.getListeners(MarkerChangeListener.class).length);
+        m.setPaint(Color.red);
+        m.addChangeListener(this);
+        this.lastEvent = null;
+        m.setNotify(false);
+        m.setPaint(Color.blue);
+        m.setAlpha(0.5f);
+        assertNull(this.lastEvent);
+        m.setNotify(true);
+        assertEquals(m, this.lastEvent.getMarker());
+
+        this.lastEvent = null;
+        m.setNotify(false);
+        m.setNotify(true);
+        assertNull(this.lastEvent);
+    }
+
     /**
      * Records the last event.
      *
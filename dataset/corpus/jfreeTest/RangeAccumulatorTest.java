@@ -0,0 +1,121 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2014, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -------------------------
+ * RangeAccumulatorTest.java
+ * -------------------------
+ * (C) Copyright 2026, by agent and Contributors.
+ *
+ * Original Author:  agent;
+ * Contributor(s):   -;
+ *
+ * Changes
+ * -------
+ * 19-Oct-2026 : Version 1 (AG);
+ *
+ */
+
+package org.jfree.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link RangeAccumulator} class.
+ */
+public class RangeAccumulatorTest {
+
+    /**
+     * A new accumulator is empty and returns a <code>null</code> range.
+     */
+    @Test
+    public void testEmpty() {
+        RangeAccumulator acc = new RangeAccumulator();
+        assertTrue(acc.isEmpty());
+        assertNull(acc.getRange());
+
+        acc.add(Double.NaN);
+        assertNull(acc.getRange());
+
+        acc.add(new double[] {Double.NaN, Double.NaN});
+        assertNull(acc.getRange());
+    }
+
+    /**
+     * Some checks for folding arrays of values.
+     */
+    @Test
+    public void testAddArray() {
+        RangeAccumulator acc = new RangeAccumulator();
+        acc.add(new double[] {Double.NaN, 3.0, -1.0, Double.NaN, 7.5, 2.0});
+        assertEquals(new Range(-1.0, 7.5), acc.getRange());
+
+        acc.add(new double[] {9.0, -4.0, 100.0}, 1, 1);
+        assertEquals(new Range(-4.0, 7.5), acc.getRange());
+
+        acc.reset();
+        assertTrue(acc.isEmpty());
+        acc.add(2.0);
+        assertEquals(new Range(2.0, 2.0), acc.getRange());
+        assertFalse(acc.isEmpty());
+    }
+
+    /**
+     * Folding ranges gives the same result as repeated calls to
+     * {@link Range#combineIgnoringNaN(Range, Range)}.
+     */
+    @Test
+    public void testMatchesCombineIgnoringNaN() {
+        List<Range> ranges = Arrays.asList(null, new Range(Double.NaN, 1.3),
+                new Range(1.0, 2.0), new Range(Double.NaN, Double.NaN),
+                new Range(-0.5, Double.NaN), null);
+        Range expected = null;
+        for (Range r : ranges) {
+            expected = Range.combineIgnoringNaN(expected, r);
+        }
+        assertEquals(expected, RangeAccumulator.combineIgnoringNaN(ranges));
+
+        ranges = Arrays.asList(new Range(Double.NaN, Double.NaN));
+        assertNull(RangeAccumulator.combineIgnoringNaN(ranges));
+    }
+
+    /**
+     * Some checks for the findRange() method.
+     */
+    @Test
+    public void testFindRange() {
+        assertNull(RangeAccumulator.findRange(new double[0]));
+        assertEquals(new Range(-2.0, 5.0), RangeAccumulator.findRange(
+                new double[] {5.0, Double.NaN, -2.0}));
+    }
+
+}
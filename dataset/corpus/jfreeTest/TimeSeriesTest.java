@@ -1778,4 +1778,61 @@ public class TimeSeriesTest implements SeriesChangeListener {
         
         assertTrue(ts.findValueRange(range, TimePeriodAnchor.END, tzone).isNaNRange());
     }
+
+    /**
+     * Merging two series updates shared periods, adds new ones, returns the
+     * overwritten values and sends a single change event.
+     */
+    @Test
+    public void testAddAndOrUpdateMerge() {
+        TimeSeries s1 = new TimeSeries("S1");
+        s1.add(new Year(2001), 1.0);
+        s1.add(new Year(2003), 3.0);
+        s1.add(new Year(2005), 5.0);
+        TimeSeries s2 = new TimeSeries("S2");
+        s2.add(new Year(2000), 10.0);
+        s2.add(new Year(2003), 30.0);
+        s2.add(new Year(2004), 40.0);
+        s2.add(new Year(2006), 60.0);
+        s1.addChangeListener(this);
+        this.gotSeriesChangeEvent = false;
+        TimeSeries overwritten = s1.addAndOrUpdate(s2);
+        assertTrue(this.gotSeriesChangeEvent);
+        assertEquals(6, s1.getItemCount());
+        assertEquals(new Year(2000), s1.getTimePeriod(0));
+        assertEquals(new Double(30.0), s1.getValue(new Year(2003)));
+        assertEquals(new Year(2006), s1.getTimePeriod(5));
+        assertEquals(1.0, s1.getMinY(), EPSILON);
+        assertEquals(60.0, s1.getMaxY(), EPSILON);
+        assertEquals(1, overwritten.getItemCount());
+        assertEquals(new Double(3.0), overwritten.getValue(new Year(2003)));
+
+        // the added items are copies
+        s2.update(new Year(2006), 99.0);
+        assertEquals(new Double(60.0), s1.getValue(new Year(2006)));
+
+        TimeSeries s3 = new TimeSeries("S3");
+        s3.setMaximumItemCount(3);
+        s3.add(new Year(2001), 1.0);
+        s3.addAndOrUpdate(s2);
+        assertEquals(3, s3.getItemCount());
+        assertEquals(new Year(2003), s3.getTimePeriod(0));
+    }
+
+    /**
+     * Some checks for the getTimePeriodsUniqueToOtherSeries() method.
+     */
+    @Test
+    public void testGetTimePeriodsUniqueToOtherSeries() {
+        TimeSeries s1 = new TimeSeries("S1");
+        s1.add(new Year(2001), 1.0);
+        s1.add(new Year(2003), 3.0);
+        TimeSeries s2 = new TimeSeries("S2");
+        s2.add(new Year(2000), 10.0);
+        s2.add(new Year(2003), 30.0);
+        s2.add(new Year(2004), 40.0);
+        assertEquals(java.util.Arrays.asList(new Year(2000), new Year(2004)),
+                s1.getTimePeriodsUniqueToOtherSeries(s2));
+        assertTrue(s2.getTimePeriodsUniqueToOtherSeries(s2).isEmpty());
+    }
 }
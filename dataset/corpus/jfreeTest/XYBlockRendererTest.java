@@ -261,4 +261,128 @@ public class XYBlockRendererTest {
         assertNull(r);
     }    
            
+
+    /**
+     * Creates a plot for a renderer, so that it caches the dataset bounds.
+     */
+    private static org.jfree.chart.plot.XYPlot createPlot(
+            DefaultXYZDataset dataset, XYBlockRenderer renderer) {
+        return new org.jfree.chart.plot.XYPlot(dataset,
+                new org.jfree.chart.axis.NumberAxis("X"),
+                new org.jfree.chart.axis.NumberAxis("Y"), renderer);
+    }
+
+    /**
+     * The cached bounds are discarded when the dataset changes.
+     */
+    @Test
+    public void testBoundsCacheInvalidation() {
+        XYBlockRenderer renderer = new XYBlockRenderer();
+        DefaultXYZDataset dataset = new DefaultXYZDataset();
+        dataset.addSeries("S1", new double[][] {{1.0, 2.0}, {3.0, 4.0},
+                {0.5, 0.6}});
+        createPlot(dataset, renderer);
+        Range r = renderer.findDomainBounds(dataset);
+        assertEquals(new Range(0.5, 2.5), r);
+        assertEquals(new Range(2.5, 4.5), renderer.findRangeBounds(dataset));
+
+        dataset.addSeries("S2", new double[][] {{10.0}, {-3.0}, {0.7}});
+        assertEquals(new Range(0.5, 10.5), renderer.findDomainBounds(dataset));
+        assertEquals(new Range(-3.5, 4.5), renderer.findRangeBounds(dataset));
+
+        // the block size is applied to the cached bounds
+        renderer.setBlockWidth(2.0);
+        assertEquals(new Range(0.0, 11.0), renderer.findDomainBounds(dataset));
+    }
+
+    /**
+     * An XYZ dataset that counts its registered change listeners.
+     */
+    static class ListenerCountingDataset extends DefaultXYZDataset {
+
+        int listenerCount;
+
+        @Override
+        public void addChangeListener(
+                org.jfree.data.general.DatasetChangeListener listener) {
+            this.listenerCount++;
+            super.addChangeListener(listener);
+        }
+
+        @Override
+        public void removeChangeListener(
+                org.jfree.data.general.DatasetChangeListener listener) {
+            if (hasListener(listener)) {
+                this.listenerCount--;
+            }
+            super.removeChangeListener(listener);
+        }
+    }
+
+    /**
+     * The renderer registers one listener with the dataset, and removes it
+     * when it is removed from its plot or when the plot stops using it.
+     */
+    @Test
+    public void testBoundsCacheListener() throws CloneNotSupportedException {
+        ListenerCountingDataset dataset = new ListenerCountingDataset();
+        dataset.addSeries("S1", new double[][] {{1.0, 2.0}, {3.0, 4.0},
+                {0.5, 0.6}});
+        XYBlockRenderer renderer = new XYBlockRenderer();
+        org.jfree.chart.plot.XYPlot plot = createPlot(dataset, renderer);
+        for (int i = 0; i < 3; i++) {
+            renderer.findDomainBounds(dataset);
+            renderer.findRangeBounds(dataset);
+        }
+        assertEquals(2, dataset.listenerCount);
+
+        // clones register their own listener and remove it with the plot
+        XYBlockRenderer clone = (XYBlockRenderer) renderer.clone();
+        clone.setPlot(plot);
+        clone.findDomainBounds(dataset);
+        assertEquals(3, dataset.listenerCount);
+        clone.setPlot(null);
+        assertEquals(2, dataset.listenerCount);
+
+        // a replaced renderer stops listening at the next change
+        plot.setRenderer(new XYBlockRenderer());
+        dataset.addSeries("S2", new double[][] {{10.0}, {-3.0}, {0.7}});
+        assertEquals(2, dataset.listenerCount);
+    }
+
+    /**
+     * A renderer without a plot does not cache bounds, so it does not leave
+     * a listener on the dataset.
+     */
+    @Test
+    public void testNoBoundsCacheWithoutPlot() {
+        ListenerCountingDataset dataset = new ListenerCountingDataset();
+        dataset.addSeries("S1", new double[][] {{1.0, 2.0}, {3.0, 4.0},
+                {0.5, 0.6}});
+        XYBlockRenderer renderer = new XYBlockRenderer();
+        assertEquals(new Range(0.5, 2.5), renderer.findDomainBounds(dataset));
+        assertEquals(new Range(2.5, 4.5), renderer.findRangeBounds(dataset));
+        assertEquals(0, dataset.listenerCount);
+
+        dataset.addSeries("S2", new double[][] {{10.0}, {-3.0}, {0.7}});
+        assertEquals(new Range(0.5, 10.5), renderer.findDomainBounds(dataset));
+    }
+
+    /**
+     * The axis ranges follow the dataset: the renderer invalidates its cache
+     * before the plot configures its axes again.
+     */
+    @Test
+    public void testBoundsCacheAxisRanges() {
+        DefaultXYZDataset dataset = new DefaultXYZDataset();
+        dataset.addSeries("S1", new double[][] {{1.0, 2.0}, {3.0, 4.0},
+                {0.5, 0.6}});
+        XYBlockRenderer renderer = new XYBlockRenderer();
+        org.jfree.chart.plot.XYPlot plot = createPlot(dataset, renderer);
+        renderer.findDomainBounds(dataset);
+        renderer.findRangeBounds(dataset);
+        dataset.addSeries("S2", new double[][] {{10.0}, {-3.0}, {0.7}});
+        assertTrue(plot.getDomainAxis().getRange().contains(10.5));
+        assertTrue(plot.getRangeAxis().getRange().contains(-3.5));
+    }
 }
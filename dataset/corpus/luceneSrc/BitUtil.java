@@ -16,6 +16,9 @@
  */
 package org.apache.lucene.util; // from org.apache.solr.util rev 555343
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**  A variety of high efficiency bit twiddling routines.
  * @lucene.internal
  */
@@ -35,52 +38,143 @@ public final class BitUtil {
 
   // The pop methods used to rely on bit-manipulation tricks for speed but it
   // turns out that it is faster to use the Long.bitCount method (which is an
-  // intrinsic since Java 6u18) in a naive loop, see LUCENE-2221
+  // intrinsic since Java 6u18) in a naive loop, see LUCENE-2221.
+  // The loops are unrolled by four with one counter per lane: the JIT does not
+  // vectorize Long.bitCount, but independent counters let the CPU overlap the
+  // popcnt instructions instead of waiting on a single chain of additions.
 
   /** Returns the number of set bits in an array of longs. */
   public static long pop_array(long[] arr, int wordOffset, int numWords) {
-    long popCount = 0;
-    for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
-      popCount += Long.bitCount(arr[i]);
+    long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+    int i = wordOffset;
+    final int end = wordOffset + numWords;
+    for (final int unrolledEnd = end - 3; i < unrolledEnd; i += 4) {
+      c0 += Long.bitCount(arr[i]);
+      c1 += Long.bitCount(arr[i + 1]);
+      c2 += Long.bitCount(arr[i + 2]);
+      c3 += Long.bitCount(arr[i + 3]);
     }
-    return popCount;
+    for (; i < end; ++i) {
+      c0 += Long.bitCount(arr[i]);
+    }
+    return c0 + c1 + c2 + c3;
   }
 
   /** Returns the popcount or cardinality of the two sets after an intersection.
    *  Neither array is modified. */
   public static long pop_intersect(long[] arr1, long[] arr2, int wordOffset, int numWords) {
-    long popCount = 0;
-    for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
-      popCount += Long.bitCount(arr1[i] & arr2[i]);
+    long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+    int i = wordOffset;
+    final int end = wordOffset + numWords;
+    for (final int unrolledEnd = end - 3; i < unrolledEnd; i += 4) {
+      c0 += Long.bitCount(arr1[i] & arr2[i]);
+      c1 += Long.bitCount(arr1[i + 1] & arr2[i + 1]);
+      c2 += Long.bitCount(arr1[i + 2] & arr2[i + 2]);
+      c3 += Long.bitCount(arr1[i + 3] & arr2[i + 3]);
     }
-    return popCount;
+    for (; i < end; ++i) {
+      c0 += Long.bitCount(arr1[i] & arr2[i]);
+    }
+    return c0 + c1 + c2 + c3;
   }
 
    /** Returns the popcount or cardinality of the union of two sets.
     *  Neither array is modified. */
    public static long pop_union(long[] arr1, long[] arr2, int wordOffset, int numWords) {
-     long popCount = 0;
-     for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
-       popCount += Long.bitCount(arr1[i] | arr2[i]);
+     long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+     int i = wordOffset;
+     final int end = wordOffset + numWords;
+     for (final int unrolledEnd = end - 3; i < unrolledEnd; i += 4) {
+       c0 += Long.bitCount(arr1[i] | arr2[i]);
+       c1 += Long.bitCount(arr1[i + 1] | arr2[i + 1]);
+       c2 += Long.bitCount(arr1[i + 2] | arr2[i + 2]);
+       c3 += Long.bitCount(arr1[i + 3] | arr2[i + 3]);
+     }
+     for (; i < end; ++i) {
+       c0 += Long.bitCount(arr1[i] | arr2[i]);
      }
-     return popCount;
+     return c0 + c1 + c2 + c3;
    }
 
   /** Returns the popcount or cardinality of {@code A & ~B}.
    *  Neither array is modified. */
   public static long pop_andnot(long[] arr1, long[] arr2, int wordOffset, int numWords) {
+    long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+    int i = wordOffset;
+    final int end = wordOffset + numWords;
+    for (final int unrolledEnd = end - 3; i < unrolledEnd; i += 4) {
+      c0 += Long.bitCount(arr1[i] & ~arr2[i]);
+      c1 += Long.bitCount(arr1[i + 1] & ~arr2[i + 1]);
+      c2 += Long.bitCount(arr1[i + 2] & ~arr2[i + 2]);
+      c3 += Long.bitCount(arr1[i + 3] & ~arr2[i + 3]);
+    }
+    for (; i < end; ++i) {
+      c0 += Long.bitCount(arr1[i] & ~arr2[i]);
+    }
+    return c0 + c1 + c2 + c3;
+  }
+
+  /** Returns the popcount or cardinality of A ^ B Neither array is modified. */
+  public static long pop_xor(long[] arr1, long[] arr2, int wordOffset, int numWords) {
+    long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+    int i = wordOffset;
+    final int end = wordOffset + numWords;
+    for (final int unrolledEnd = end - 3; i < unrolledEnd; i += 4) {
+      c0 += Long.bitCount(arr1[i] ^ arr2[i]);
+      c1 += Long.bitCount(arr1[i + 1] ^ arr2[i + 1]);
+      c2 += Long.bitCount(arr1[i + 2] ^ arr2[i + 2]);
+      c3 += Long.bitCount(arr1[i + 3] ^ arr2[i + 3]);
+    }
+    for (; i < end; ++i) {
+      c0 += Long.bitCount(arr1[i] ^ arr2[i]);
+    }
+    return c0 + c1 + c2 + c3;
+  }
+
+  /** Writes {@code A & B} into {@code dest} and returns its popcount, in a single pass.
+   *  {@code dest} may be one of the input arrays. */
+  public static long pop_intersect(long[] arr1, long[] arr2, long[] dest, int wordOffset, int numWords) {
     long popCount = 0;
     for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
-      popCount += Long.bitCount(arr1[i] & ~arr2[i]);
+      final long word = arr1[i] & arr2[i];
+      dest[i] = word;
+      popCount += Long.bitCount(word);
     }
     return popCount;
   }
 
-  /** Returns the popcount or cardinality of A ^ B Neither array is modified. */
-  public static long pop_xor(long[] arr1, long[] arr2, int wordOffset, int numWords) {
+  /** Writes {@code A | B} into {@code dest} and returns its popcount, in a single pass.
+   *  {@code dest} may be one of the input arrays. */
+  public static long pop_union(long[] arr1, long[] arr2, long[] dest, int wordOffset, int numWords) {
+    long popCount = 0;
+    for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
+      final long word = arr1[i] | arr2[i];
+      dest[i] = word;
+      popCount += Long.bitCount(word);
+    }
+    return popCount;
+  }
+
+  /** Writes {@code A & ~B} into {@code dest} and returns its popcount, in a single pass.
+   *  {@code dest} may be one of the input arrays. */
+  public static long pop_andnot(long[] arr1, long[] arr2, long[] dest, int wordOffset, int numWords) {
     long popCount = 0;
     for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
-      popCount += Long.bitCount(arr1[i] ^ arr2[i]);
+      final long word = arr1[i] & ~arr2[i];
+      dest[i] = word;
+      popCount += Long.bitCount(word);
+    }
+    return popCount;
+  }
+
+  /** Writes {@code A ^ B} into {@code dest} and returns its popcount, in a single pass.
+   *  {@code dest} may be one of the input arrays. */
+  public static long pop_xor(long[] arr1, long[] arr2, long[] dest, int wordOffset, int numWords) {
+    long popCount = 0;
+    for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
+      final long word = arr1[i] ^ arr2[i];
+      dest[i] = word;
+      popCount += Long.bitCount(word);
     }
     return popCount;
   }
@@ -145,6 +239,133 @@ public final class BitUtil {
     return b;
   }
 
+  /**
+   * Interleaves {@code even[i]} and {@code odd[i]} into {@code out[i]} for the first {@code len} values,
+   * like {@link #interleave(int, int)}.
+   */
+  public static void interleave(int[] even, int[] odd, long[] out, int len) {
+    // same steps as interleave(int, int), with the magic numbers inlined so that the loop
+    // does not need to load them from MAGIC and SHIFT on every iteration
+    for (int i = 0; i < len; ++i) {
+      long v1 = 0x00000000FFFFFFFFL & even[i];
+      long v2 = 0x00000000FFFFFFFFL & odd[i];
+      v1 = (v1 | (v1 << 16)) & 0x0000FFFF0000FFFFL;
+      v2 = (v2 | (v2 << 16)) & 0x0000FFFF0000FFFFL;
+      v1 = (v1 | (v1 << 8)) & 0x00FF00FF00FF00FFL;
+      v2 = (v2 | (v2 << 8)) & 0x00FF00FF00FF00FFL;
+      v1 = (v1 | (v1 << 4)) & 0x0F0F0F0F0F0F0F0FL;
+      v2 = (v2 | (v2 << 4)) & 0x0F0F0F0F0F0F0F0FL;
+      v1 = (v1 | (v1 << 2)) & 0x3333333333333333L;
+      v2 = (v2 | (v2 << 2)) & 0x3333333333333333L;
+      v1 = (v1 | (v1 << 1)) & 0x5555555555555555L;
+      v2 = (v2 | (v2 << 1)) & 0x5555555555555555L;
+      out[i] = (v2 << 1) | v1;
+    }
+  }
+
+  /**
+   * Splits the first {@code len} values of {@code interleaved} back into their even bits, written to {@code even},
+   * and their odd bits, written to {@code odd}. This is the inverse of {@link #interleave(int[], int[], long[], int)}.
+   */
+  public static void deinterleave(long[] interleaved, int[] even, int[] odd, int len) {
+    for (int i = 0; i < len; ++i) {
+      long e = interleaved[i] & 0x5555555555555555L;
+      long o = (interleaved[i] >>> 1) & 0x5555555555555555L;
+      e = (e ^ (e >>> 1)) & 0x3333333333333333L;
+      o = (o ^ (o >>> 1)) & 0x3333333333333333L;
+      e = (e ^ (e >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+      o = (o ^ (o >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+      e = (e ^ (e >>> 4)) & 0x00FF00FF00FF00FFL;
+      o = (o ^ (o >>> 4)) & 0x00FF00FF00FF00FFL;
+      e = (e ^ (e >>> 8)) & 0x0000FFFF0000FFFFL;
+      o = (o ^ (o >>> 8)) & 0x0000FFFF0000FFFFL;
+      e = (e ^ (e >>> 16)) & 0x00000000FFFFFFFFL;
+      o = (o ^ (o >>> 16)) & 0x00000000FFFFFFFFL;
+      even[i] = (int) e;
+      odd[i] = (int) o;
+    }
+  }
+
+  /**
+   * Returns the ranges of {@link #interleave(int, int) interleaved} (Morton) codes of the points whose
+   * even value is in {@code [minEven, maxEven]} and odd value is in {@code [minOdd, maxOdd]}, as a flat array
+   * of {@code [start0, end0, start1, end1, ...]} inclusive bounds, sorted and with adjacent ranges merged.
+   * Values are compared as unsigned integers and codes as unsigned longs, like {@link #interleave(int, int)}
+   * produces them.
+   * <br>The box is decomposed into quadtree cells, one level at a time. If refining the next level could produce
+   * more than {@code maxRanges} ranges, the cells that cross the boundary of the box are returned whole, so the
+   * ranges always cover the box but may then also cover some points outside of it.
+   */
+  public static long[] mortonRanges(int minEven, int maxEven, int minOdd, int maxOdd, int maxRanges) {
+    if (Integer.compareUnsigned(minEven, maxEven) > 0 || Integer.compareUnsigned(minOdd, maxOdd) > 0) {
+      throw new IllegalArgumentException("min must be <= max, got even=[" + Integer.toUnsignedString(minEven) + ", "
+          + Integer.toUnsignedString(maxEven) + "] odd=[" + Integer.toUnsignedString(minOdd) + ", "
+          + Integer.toUnsignedString(maxOdd) + "]");
+    }
+    if (maxRanges < 1) {
+      throw new IllegalArgumentException("maxRanges must be >= 1, got " + maxRanges);
+    }
+    final long[] box = new long[] {
+        minEven & 0xFFFFFFFFL, maxEven & 0xFFFFFFFFL, minOdd & 0xFFFFFFFFL, maxOdd & 0xFFFFFFFFL };
+    // a cell is {first code, number of bits per dimension, min even value, min odd value}
+    final List<long[]> ranges = new ArrayList<>();
+    List<long[]> crossing = new ArrayList<>();
+    addCell(new long[] {0, 32, 0, 0}, box, ranges, crossing);
+    while (crossing.isEmpty() == false && ranges.size() + 4L * crossing.size() <= maxRanges) {
+      final List<long[]> next = new ArrayList<>();
+      for (long[] cell : crossing) {
+        // cells of a single point never cross the box, so bits > 0 here
+        final int childBits = (int) cell[1] - 1;
+        final long childWidth = 1L << (2 * childBits);
+        final long half = 1L << childBits;
+        // children in code order: the even value is the low bit of each pair
+        addCell(new long[] {cell[0], childBits, cell[2], cell[3]}, box, ranges, next);
+        addCell(new long[] {cell[0] + childWidth, childBits, cell[2] + half, cell[3]}, box, ranges, next);
+        addCell(new long[] {cell[0] + 2 * childWidth, childBits, cell[2], cell[3] + half}, box, ranges, next);
+        addCell(new long[] {cell[0] + 3 * childWidth, childBits, cell[2] + half, cell[3] + half}, box, ranges, next);
+      }
+      crossing = next;
+    }
+    for (long[] cell : crossing) {
+      ranges.add(cellRange(cell));
+    }
+
+    ranges.sort((r1, r2) -> Long.compareUnsigned(r1[0], r2[0]));
+    final long[] result = new long[2 * ranges.size()];
+    int numRanges = 0;
+    for (long[] range : ranges) {
+      if (numRanges > 0 && result[2 * numRanges - 1] + 1 == range[0]) {
+        result[2 * numRanges - 1] = range[1];
+      } else {
+        result[2 * numRanges] = range[0];
+        result[2 * numRanges + 1] = range[1];
+        numRanges++;
+      }
+    }
+    return ArrayUtil.copyOfSubArray(result, 0, 2 * numRanges);
+  }
+
+  /** Adds the range of the cell to {@code ranges} if it is within the box, or the cell to {@code crossing} if it crosses it. */
+  private static void addCell(long[] cell, long[] box, List<long[]> ranges, List<long[]> crossing) {
+    final long side = 1L << cell[1];
+    final long minEven = cell[2], maxEven = cell[2] + side - 1;
+    final long minOdd = cell[3], maxOdd = cell[3] + side - 1;
+    if (maxEven < box[0] || minEven > box[1] || maxOdd < box[2] || minOdd > box[3]) {
+      return;
+    }
+    if (minEven >= box[0] && maxEven <= box[1] && minOdd >= box[2] && maxOdd <= box[3]) {
+      ranges.add(cellRange(cell));
+    } else {
+      crossing.add(cell);
+    }
+  }
+
+  private static long[] cellRange(long[] cell) {
+    // (1L << 64) - 1 would be 0, the root cell covers all codes
+    final long lastOffset = cell[1] == 32 ? -1L : (1L << (2 * cell[1])) - 1;
+    return new long[] { cell[0], cell[0] + lastOffset };
+  }
+
   /**
    * flip flops odd with even bits
    */
@@ -175,6 +396,34 @@ public final class BitUtil {
      return ((l >>> 1) ^ -(l & 1));
    }
 
+   /** Applies {@link #zigZagEncode(int)} to all values of {@code in} and writes them to {@code out}, which may be {@code in}. */
+   public static void zigZagEncode(int[] in, int[] out) {
+     for (int i = 0; i < in.length; ++i) {
+       out[i] = (in[i] >> 31) ^ (in[i] << 1);
+     }
+   }
+
+   /** Applies {@link #zigZagEncode(long)} to all values of {@code in} and writes them to {@code out}, which may be {@code in}. */
+   public static void zigZagEncode(long[] in, long[] out) {
+     for (int i = 0; i < in.length; ++i) {
+       out[i] = (in[i] >> 63) ^ (in[i] << 1);
+     }
+   }
+
+   /** Applies {@link #zigZagDecode(int)} to all values of {@code in} and writes them to {@code out}, which may be {@code in}. */
+   public static void zigZagDecode(int[] in, int[] out) {
+     for (int i = 0; i < in.length; ++i) {
+       out[i] = (in[i] >>> 1) ^ -(in[i] & 1);
+     }
+   }
+
+   /** Applies {@link #zigZagDecode(long)} to all values of {@code in} and writes them to {@code out}, which may be {@code in}. */
+   public static void zigZagDecode(long[] in, long[] out) {
+     for (int i = 0; i < in.length; ++i) {
+       out[i] = (in[i] >>> 1) ^ -(in[i] & 1);
+     }
+   }
+
   /**
    * Returns whether the bit at given zero-based index is set.
    * <br>Example: bitIndex 66 means the third bit on the right of the second long.
@@ -199,11 +448,7 @@ public final class BitUtil {
   public static int countBits(long[] bits, int numLongs) {
     assert numLongs >= 0 && numLongs <= bits.length
         : "numLongs=" + numLongs + " bits.length=" + bits.length;
-    int bitCount = 0;
-    for (int i = 0; i < numLongs; i++) {
-      bitCount += Long.bitCount(bits[i]);
-    }
-    return bitCount;
+    return (int) pop_array(bits, 0, numLongs);
   }
 
   /**
@@ -219,12 +464,9 @@ public final class BitUtil {
   public static int countBitsUpTo(long[] bits, int numLongs, int bitIndex) {
     assert numLongs >= 0 && numLongs <= bits.length && bitIndex >= 0 && bitIndex <= numLongs * Long.SIZE
         : "bitIndex=" + bitIndex + " numLongs=" + numLongs + " bits.length=" + bits.length;
-    int bitCount = 0;
     int lastLong = bitIndex / Long.SIZE;
-    for (int i = 0; i < lastLong; i++) {
-      // Count the bits set for all plain longs.
-      bitCount += Long.bitCount(bits[i]);
-    }
+    // Count the bits set for all plain longs.
+    int bitCount = (int) pop_array(bits, 0, lastLong);
     if (lastLong < numLongs) {
       // Prepare a mask with 1s on the right up to bitIndex exclusive.
       long mask = (1L << bitIndex) - 1L; // Shifts are mod 64.
@@ -0,0 +1,795 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util;
+
+import java.util.Arrays;
+
+/**
+ * A compressed, immutable set of bits, meant as a companion to the {@code long[]} bitsets of {@link BitUtil}
+ * for sparse or clustered sets, such as filters over large indices.
+ * <p>
+ * Like {@link RoaringDocIdSet}, bits are split into blocks of 2<sup>16</sup> bits and each non-empty block
+ * is stored in the smallest of three containers: a sorted array of the set bits, a list of runs of set bits,
+ * or a plain bitmap of 1024 longs. Empty blocks take no space. A set with one bit out of 100 set takes
+ * about 1/6th of the memory of the equivalent {@code long[]}, and a set made of a few long runs
+ * takes almost nothing.
+ * <p>
+ * This class provides the same read operations as {@link BitUtil}: {@link #isBitSet(int)},
+ * {@link #countBitsUpTo(int)}, {@link #nextBitSet(int)}, {@link #previousBitSet(int)} and the
+ * {@code pop_*} cardinalities, either against another compressed set or against a {@code long[]} bitset.
+ * Intersections are computed container by container: bitmaps are combined word by word, and arrays
+ * and runs only look at the words that they touch. {@link #intersect(long[], int)} applies the set
+ * to a {@code long[]} bitset in place.
+ *
+ * @lucene.internal
+ */
+public final class CompressedBitSet implements Bits, Accountable {
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CompressedBitSet.class);
+
+  /** The number of bits per block. */
+  static final int BLOCK_SIZE = 1 << 16;
+  private static final int BLOCK_SHIFT = 16;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int LONGS_PER_BLOCK = BLOCK_SIZE / Long.SIZE;
+
+  private final int numBits;
+  private final Container[] containers;
+  // blockRanks[i] is the number of bits set before block i, blockRanks[containers.length] is the cardinality
+  private final int[] blockRanks;
+
+  private CompressedBitSet(int numBits, Container[] containers) {
+    this.numBits = numBits;
+    this.containers = containers;
+    this.blockRanks = new int[containers.length + 1];
+    for (int i = 0; i < containers.length; ++i) {
+      blockRanks[i + 1] = blockRanks[i] + (containers[i] == null ? 0 : containers[i].cardinality());
+    }
+  }
+
+  /**
+   * Returns a compressed copy of the first {@code numLongs} longs of {@code bits}.
+   *
+   * @param bits     The bits stored in an array of long for efficiency.
+   * @param numLongs The number of longs in {@code bits} to consider.
+   */
+  public static CompressedBitSet fromBits(long[] bits, int numLongs) {
+    if (numLongs < 0 || numLongs > bits.length) {
+      throw new IllegalArgumentException("numLongs must be >= 0 and <= bits.length=" + bits.length + ", got " + numLongs);
+    }
+    if ((long) numLongs * Long.SIZE > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many bits: " + (long) numLongs * Long.SIZE);
+    }
+    final Container[] containers = new Container[(numLongs + LONGS_PER_BLOCK - 1) / LONGS_PER_BLOCK];
+    for (int block = 0; block < containers.length; ++block) {
+      final int wordOffset = block * LONGS_PER_BLOCK;
+      containers[block] = Container.of(bits, wordOffset, Math.min(LONGS_PER_BLOCK, numLongs - wordOffset));
+    }
+    return new CompressedBitSet(numLongs * Long.SIZE, containers);
+  }
+
+  /** Builds a {@link CompressedBitSet} from bit indexes added in increasing order, one block at a time. */
+  public static final class Builder {
+
+    private final int numBits;
+    private final Container[] containers;
+    private final long[] buffer = new long[LONGS_PER_BLOCK];
+    private int currentBlock = -1;
+    private int lastIndex = -1;
+
+    /** Creates a builder for a set of {@code numBits} bits. */
+    public Builder(int numBits) {
+      if (numBits < 0) {
+        throw new IllegalArgumentException("numBits must be >= 0, got " + numBits);
+      }
+      this.numBits = numBits;
+      this.containers = new Container[(int) (((long) numBits + BLOCK_SIZE - 1) >>> BLOCK_SHIFT)];
+    }
+
+    /** Sets the bit at the given index, which must be greater than the previously added index. */
+    public Builder add(int bitIndex) {
+      if (bitIndex <= lastIndex || bitIndex >= numBits) {
+        throw new IllegalArgumentException("bitIndex must be > " + lastIndex + " and < numBits=" + numBits + ", got " + bitIndex);
+      }
+      final int block = bitIndex >>> BLOCK_SHIFT;
+      if (block != currentBlock) {
+        flush();
+        currentBlock = block;
+      }
+      buffer[(bitIndex & BLOCK_MASK) >>> 6] |= 1L << bitIndex;
+      lastIndex = bitIndex;
+      return this;
+    }
+
+    private void flush() {
+      if (currentBlock >= 0) {
+        containers[currentBlock] = Container.of(buffer, 0, LONGS_PER_BLOCK);
+        Arrays.fill(buffer, 0L);
+      }
+    }
+
+    /** Returns the set. The builder must not be used afterwards. */
+    public CompressedBitSet build() {
+      flush();
+      currentBlock = -1;
+      return new CompressedBitSet(numBits, containers);
+    }
+  }
+
+  @Override
+  public int length() {
+    return numBits;
+  }
+
+  @Override
+  public boolean get(int index) {
+    return isBitSet(index);
+  }
+
+  /** Returns the number of bits set. */
+  public int cardinality() {
+    return blockRanks[containers.length];
+  }
+
+  /**
+   * Returns whether the bit at given zero-based index is set.
+   * This is equivalent to {@link BitUtil#isBitSet(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index.
+   *		It must be greater than or equal to 0, and strictly less than {@link #length()}.
+   */
+  public boolean isBitSet(int bitIndex) {
+    assert bitIndex >= 0 && bitIndex < numBits : "bitIndex=" + bitIndex + " numBits=" + numBits;
+    final Container container = containers[bitIndex >>> BLOCK_SHIFT];
+    return container != null && container.contains(bitIndex & BLOCK_MASK);
+  }
+
+  /**
+   * Counts the bits set up to the given bit zero-based index, exclusive.
+   * This is equivalent to {@link BitUtil#countBitsUpTo(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index, exclusive.
+   *			It must be greater than or equal to 0, and less than or equal to {@link #length()}.
+   */
+  public int countBitsUpTo(int bitIndex) {
+    assert bitIndex >= 0 && bitIndex <= numBits : "bitIndex=" + bitIndex + " numBits=" + numBits;
+    final int block = bitIndex >>> BLOCK_SHIFT;
+    if (block == containers.length) {
+      return cardinality();
+    }
+    final Container container = containers[block];
+    return blockRanks[block] + (container == null ? 0 : container.rank(bitIndex & BLOCK_MASK));
+  }
+
+  /**
+   * Returns the index of the next bit set following the given bit zero-based index, or -1 if none.
+   * This is equivalent to {@link BitUtil#nextBitSet(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index.
+   *				It must be greater than or equal to -1, and strictly less than {@link #length()}.
+   */
+  public int nextBitSet(int bitIndex) {
+    assert bitIndex >= -1 && bitIndex < numBits : "bitIndex=" + bitIndex + " numBits=" + numBits;
+    final int target = bitIndex + 1;
+    if (target == numBits) {
+      return -1;
+    }
+    int block = target >>> BLOCK_SHIFT;
+    if (containers[block] != null) {
+      final int next = containers[block].next(target & BLOCK_MASK);
+      if (next != -1) {
+        return (block << BLOCK_SHIFT) | next;
+      }
+    }
+    // empty blocks are skipped without looking at their bits
+    while (++block < containers.length) {
+      if (containers[block] != null) {
+        return (block << BLOCK_SHIFT) | containers[block].next(0);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the previous bit set preceding the given bit zero-based index, or -1 if none.
+   * This is equivalent to {@link BitUtil#previousBitSet(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index.
+   *				It must be greater than or equal to 0, and less than or equal to {@link #length()}.
+   */
+  public int previousBitSet(int bitIndex) {
+    assert bitIndex >= 0 && bitIndex <= numBits : "bitIndex=" + bitIndex + " numBits=" + numBits;
+    if (bitIndex == 0) {
+      return -1;
+    }
+    final int target = bitIndex - 1;
+    int block = target >>> BLOCK_SHIFT;
+    if (containers[block] != null) {
+      final int previous = containers[block].previous(target & BLOCK_MASK);
+      if (previous != -1) {
+        return (block << BLOCK_SHIFT) | previous;
+      }
+    }
+    while (--block >= 0) {
+      if (containers[block] != null) {
+        return (block << BLOCK_SHIFT) | containers[block].previous(BLOCK_MASK);
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the popcount or cardinality of the intersection of this set and {@code other}. */
+  public long pop_intersect(CompressedBitSet other) {
+    long popCount = 0;
+    for (int block = 0, end = Math.min(containers.length, other.containers.length); block < end; ++block) {
+      final Container c1 = containers[block];
+      final Container c2 = other.containers[block];
+      if (c1 != null && c2 != null) {
+        popCount += Container.intersectionCount(c1, c2);
+      }
+    }
+    return popCount;
+  }
+
+  /** Returns the popcount or cardinality of the union of this set and {@code other}. */
+  public long pop_union(CompressedBitSet other) {
+    return (long) cardinality() + other.cardinality() - pop_intersect(other);
+  }
+
+  /** Returns the popcount or cardinality of {@code this & ~other}. */
+  public long pop_andnot(CompressedBitSet other) {
+    return cardinality() - pop_intersect(other);
+  }
+
+  /** Returns the popcount or cardinality of {@code this ^ other}. */
+  public long pop_xor(CompressedBitSet other) {
+    return (long) cardinality() + other.cardinality() - 2 * pop_intersect(other);
+  }
+
+  /**
+   * Returns the popcount or cardinality of the intersection of this set and the first {@code numLongs} longs of {@code bits}.
+   * The array is not modified.
+   */
+  public long pop_intersect(long[] bits, int numLongs) {
+    assert numLongs >= 0 && numLongs <= bits.length : "numLongs=" + numLongs + " bits.length=" + bits.length;
+    long popCount = 0;
+    for (int block = 0; block < containers.length; ++block) {
+      final int wordOffset = block * LONGS_PER_BLOCK;
+      if (wordOffset >= numLongs) {
+        break;
+      }
+      if (containers[block] != null) {
+        popCount += containers[block].intersectionCount(bits, wordOffset, Math.min(LONGS_PER_BLOCK, numLongs - wordOffset));
+      }
+    }
+    return popCount;
+  }
+
+  /** Returns the popcount or cardinality of the union of this set and the first {@code numLongs} longs of {@code bits}. */
+  public long pop_union(long[] bits, int numLongs) {
+    return cardinality() + BitUtil.pop_array(bits, 0, numLongs) - pop_intersect(bits, numLongs);
+  }
+
+  /** Returns the popcount or cardinality of {@code this & ~bits}, considering the first {@code numLongs} longs of {@code bits}. */
+  public long pop_andnot(long[] bits, int numLongs) {
+    return cardinality() - pop_intersect(bits, numLongs);
+  }
+
+  /** Returns the popcount or cardinality of {@code this ^ bits}, considering the first {@code numLongs} longs of {@code bits}. */
+  public long pop_xor(long[] bits, int numLongs) {
+    return cardinality() + BitUtil.pop_array(bits, 0, numLongs) - 2 * pop_intersect(bits, numLongs);
+  }
+
+  /**
+   * Clears the bits among the first {@code numLongs} longs of {@code bits} that are not set in this set,
+   * ie. computes {@code bits &= this} in place, and returns the cardinality of the result.
+   */
+  public long intersect(long[] bits, int numLongs) {
+    assert numLongs >= 0 && numLongs <= bits.length : "numLongs=" + numLongs + " bits.length=" + bits.length;
+    long popCount = 0;
+    for (int wordOffset = 0, block = 0; wordOffset < numLongs; wordOffset += LONGS_PER_BLOCK, ++block) {
+      final int numWords = Math.min(LONGS_PER_BLOCK, numLongs - wordOffset);
+      final Container container = block < containers.length ? containers[block] : null;
+      if (container == null) {
+        Arrays.fill(bits, wordOffset, wordOffset + numWords, 0L);
+      } else {
+        container.intersect(bits, wordOffset, numWords);
+        popCount += BitUtil.pop_array(bits, wordOffset, numWords);
+      }
+    }
+    return popCount;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(containers) + RamUsageEstimator.sizeOf(blockRanks);
+    for (Container container : containers) {
+      if (container != null) {
+        ramBytesUsed += container.ramBytesUsed();
+      }
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public String toString() {
+    int arrays = 0, runs = 0, bitmaps = 0;
+    for (Container container : containers) {
+      if (container instanceof ArrayContainer) {
+        arrays++;
+      } else if (container instanceof RunContainer) {
+        runs++;
+      } else if (container instanceof BitmapContainer) {
+        bitmaps++;
+      }
+    }
+    return "CompressedBitSet(numBits=" + numBits + ", cardinality=" + cardinality() + ", arrays=" + arrays
+        + ", runs=" + runs + ", bitmaps=" + bitmaps + ")";
+  }
+
+  /** Returns the first bit set at or after {@code index} in the given words, or -1. */
+  static int nextSetBit(long[] words, int wordOffset, int numWords, int index) {
+    int word = index >>> 6;
+    if (word >= numWords) {
+      return -1;
+    }
+    long bits = words[wordOffset + word] & (-1L << index); // Shifts are mod 64.
+    while (bits == 0) {
+      if (++word == numWords) {
+        return -1;
+      }
+      bits = words[wordOffset + word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /** Returns the first clear bit at or after {@code index} in the given words, or {@code numWords * 64}. */
+  static int nextClearBit(long[] words, int wordOffset, int numWords, int index) {
+    int word = index >>> 6;
+    if (word >= numWords) {
+      return numWords << 6;
+    }
+    long bits = ~words[wordOffset + word] & (-1L << index);
+    while (bits == 0) {
+      if (++word == numWords) {
+        return numWords << 6;
+      }
+      bits = ~words[wordOffset + word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /** Returns the number of bits set in {@code [from, to)} in the words that start at {@code wordOffset}. */
+  static long countBits(long[] words, int wordOffset, int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    final int startWord = from >>> 6;
+    final int endWord = (to - 1) >>> 6;
+    final long startMask = -1L << from;
+    final long endMask = -1L >>> -to;
+    if (startWord == endWord) {
+      return Long.bitCount(words[wordOffset + startWord] & startMask & endMask);
+    }
+    return Long.bitCount(words[wordOffset + startWord] & startMask)
+        + BitUtil.pop_array(words, wordOffset + startWord + 1, endWord - startWord - 1)
+        + Long.bitCount(words[wordOffset + endWord] & endMask);
+  }
+
+  /** Clears the bits in {@code [from, to)} in the words that start at {@code wordOffset}. */
+  static void clearBits(long[] words, int wordOffset, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    final int startWord = from >>> 6;
+    final int endWord = (to - 1) >>> 6;
+    final long startMask = -1L << from;
+    final long endMask = -1L >>> -to;
+    if (startWord == endWord) {
+      words[wordOffset + startWord] &= ~(startMask & endMask);
+      return;
+    }
+    words[wordOffset + startWord] &= ~startMask;
+    Arrays.fill(words, wordOffset + startWord + 1, wordOffset + endWord, 0L);
+    words[wordOffset + endWord] &= ~endMask;
+  }
+
+  /**
+   * The bits of one block. Indexes are relative to the start of the block. Methods that take a {@code long[]}
+   * only consider its words {@code [wordOffset, wordOffset + numWords)}, which hold the bits of the same block.
+   */
+  abstract static class Container implements Accountable {
+
+    /** Returns the smallest container for the given words, or {@code null} if they are all zero. */
+    static Container of(long[] words, int wordOffset, int numWords) {
+      final int cardinality = (int) BitUtil.pop_array(words, wordOffset, numWords);
+      if (cardinality == 0) {
+        return null;
+      }
+      int numRuns = 0;
+      long previous = 0;
+      for (int i = wordOffset, end = wordOffset + numWords; i < end; ++i) {
+        // a run starts on every set bit whose preceding bit is clear
+        numRuns += Long.bitCount(words[i] & ~((words[i] << 1) | (previous >>> 63)));
+        previous = words[i];
+      }
+      final long arrayBytes = 2L * cardinality;
+      final long runBytes = 8L * numRuns;
+      final long bitmapBytes = 8L * numWords;
+      if (runBytes <= arrayBytes && runBytes <= bitmapBytes) {
+        return RunContainer.of(words, wordOffset, numWords, numRuns);
+      } else if (arrayBytes <= bitmapBytes) {
+        return ArrayContainer.of(words, wordOffset, numWords, cardinality);
+      } else {
+        return new BitmapContainer(ArrayUtil.copyOfSubArray(words, wordOffset, wordOffset + numWords), cardinality);
+      }
+    }
+
+    /** Returns the number of bits that are set in both containers. */
+    static long intersectionCount(Container c1, Container c2) {
+      if (c1 instanceof BitmapContainer) {
+        final long[] words = ((BitmapContainer) c1).words;
+        return c2.intersectionCount(words, 0, words.length);
+      } else if (c2 instanceof BitmapContainer) {
+        final long[] words = ((BitmapContainer) c2).words;
+        return c1.intersectionCount(words, 0, words.length);
+      } else if (c1 instanceof ArrayContainer && c2 instanceof ArrayContainer) {
+        return ArrayContainer.intersectionCount((ArrayContainer) c1, (ArrayContainer) c2);
+      } else if (c1 instanceof RunContainer && c2 instanceof RunContainer) {
+        return RunContainer.intersectionCount((RunContainer) c1, (RunContainer) c2);
+      } else if (c1 instanceof ArrayContainer) {
+        return ((RunContainer) c2).intersectionCount((ArrayContainer) c1);
+      } else {
+        return ((RunContainer) c1).intersectionCount((ArrayContainer) c2);
+      }
+    }
+
+    abstract int cardinality();
+
+    abstract boolean contains(int index);
+
+    /** Returns the number of bits set before {@code index}. */
+    abstract int rank(int index);
+
+    /** Returns the first bit set at or after {@code index}, or -1. */
+    abstract int next(int index);
+
+    /** Returns the last bit set at or before {@code index}, or -1. */
+    abstract int previous(int index);
+
+    /** Returns the number of bits set in both this container and the given words. */
+    abstract long intersectionCount(long[] words, int wordOffset, int numWords);
+
+    /** Clears the bits of the given words that are not set in this container. */
+    abstract void intersect(long[] words, int wordOffset, int numWords);
+  }
+
+  /** A sorted array of the bits that are set. */
+  static final class ArrayContainer extends Container {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(ArrayContainer.class);
+
+    final char[] values;
+
+    ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    static ArrayContainer of(long[] words, int wordOffset, int numWords, int cardinality) {
+      final char[] values = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < numWords; ++i) {
+        for (long word = words[wordOffset + i]; word != 0; word &= word - 1) {
+          values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+      return new ArrayContainer(values);
+    }
+
+    static long intersectionCount(ArrayContainer a1, ArrayContainer a2) {
+      final char[] v1 = a1.values, v2 = a2.values;
+      long count = 0;
+      for (int i = 0, j = 0; i < v1.length && j < v2.length; ) {
+        if (v1[i] < v2[j]) {
+          ++i;
+        } else if (v1[i] > v2[j]) {
+          ++j;
+        } else {
+          ++count;
+          ++i;
+          ++j;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    int cardinality() {
+      return values.length;
+    }
+
+    @Override
+    boolean contains(int index) {
+      return Arrays.binarySearch(values, (char) index) >= 0;
+    }
+
+    @Override
+    int rank(int index) {
+      final int i = Arrays.binarySearch(values, (char) index);
+      return i >= 0 ? i : -1 - i;
+    }
+
+    @Override
+    int next(int index) {
+      final int i = rank(index);
+      return i < values.length ? values[i] : -1;
+    }
+
+    @Override
+    int previous(int index) {
+      final int i = Arrays.binarySearch(values, (char) index);
+      if (i >= 0) {
+        return index;
+      }
+      final int insertionPoint = -1 - i;
+      return insertionPoint == 0 ? -1 : values[insertionPoint - 1];
+    }
+
+    @Override
+    long intersectionCount(long[] words, int wordOffset, int numWords) {
+      long count = 0;
+      for (char value : values) {
+        final int word = value >>> 6;
+        if (word >= numWords) {
+          break;
+        }
+        if ((words[wordOffset + word] & (1L << value)) != 0) {
+          ++count;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    void intersect(long[] words, int wordOffset, int numWords) {
+      int i = 0;
+      for (int word = 0; word < numWords; ++word) {
+        long mask = 0;
+        while (i < values.length && (values[i] >>> 6) == word) {
+          mask |= 1L << values[i++];
+        }
+        words[wordOffset + word] &= mask;
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(values);
+    }
+  }
+
+  /** Runs of consecutive set bits. */
+  static final class RunContainer extends Container {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RunContainer.class);
+
+    // run i covers [starts[i], lasts[i]], ranks[i] is the number of bits set before it
+    final char[] starts;
+    final char[] lasts;
+    final int[] ranks;
+    private final int cardinality;
+
+    RunContainer(char[] starts, char[] lasts) {
+      this.starts = starts;
+      this.lasts = lasts;
+      this.ranks = new int[starts.length];
+      int rank = 0;
+      for (int i = 0; i < starts.length; ++i) {
+        ranks[i] = rank;
+        rank += lasts[i] - starts[i] + 1;
+      }
+      this.cardinality = rank;
+    }
+
+    static RunContainer of(long[] words, int wordOffset, int numWords, int numRuns) {
+      final char[] starts = new char[numRuns];
+      final char[] lasts = new char[numRuns];
+      final int numBits = numWords << 6;
+      int run = 0;
+      for (int start = nextSetBit(words, wordOffset, numWords, 0); start != -1; ) {
+        final int end = nextClearBit(words, wordOffset, numWords, start);
+        starts[run] = (char) start;
+        lasts[run] = (char) (end - 1);
+        ++run;
+        start = end == numBits ? -1 : nextSetBit(words, wordOffset, numWords, end);
+      }
+      assert run == numRuns;
+      return new RunContainer(starts, lasts);
+    }
+
+    static long intersectionCount(RunContainer r1, RunContainer r2) {
+      long count = 0;
+      for (int i = 0, j = 0; i < r1.starts.length && j < r2.starts.length; ) {
+        final int overlap = Math.min(r1.lasts[i], r2.lasts[j]) - Math.max(r1.starts[i], r2.starts[j]) + 1;
+        if (overlap > 0) {
+          count += overlap;
+        }
+        if (r1.lasts[i] < r2.lasts[j]) {
+          ++i;
+        } else {
+          ++j;
+        }
+      }
+      return count;
+    }
+
+    long intersectionCount(ArrayContainer array) {
+      long count = 0;
+      int run = 0;
+      for (char value : array.values) {
+        while (run < starts.length && lasts[run] < value) {
+          ++run;
+        }
+        if (run == starts.length) {
+          break;
+        }
+        if (starts[run] <= value) {
+          ++count;
+        }
+      }
+      return count;
+    }
+
+    /** Returns the last run that starts at or before {@code index}, or -1. */
+    private int runAtOrBefore(int index) {
+      final int i = Arrays.binarySearch(starts, (char) index);
+      return i >= 0 ? i : -2 - i;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int index) {
+      final int run = runAtOrBefore(index);
+      return run >= 0 && index <= lasts[run];
+    }
+
+    @Override
+    int rank(int index) {
+      if (index == 0) {
+        return 0;
+      }
+      final int run = runAtOrBefore(index - 1);
+      return run < 0 ? 0 : ranks[run] + Math.min(index - 1, lasts[run]) - starts[run] + 1;
+    }
+
+    @Override
+    int next(int index) {
+      final int run = runAtOrBefore(index);
+      if (run >= 0 && index <= lasts[run]) {
+        return index;
+      }
+      return run + 1 < starts.length ? starts[run + 1] : -1;
+    }
+
+    @Override
+    int previous(int index) {
+      final int run = runAtOrBefore(index);
+      return run < 0 ? -1 : Math.min(index, lasts[run]);
+    }
+
+    @Override
+    long intersectionCount(long[] words, int wordOffset, int numWords) {
+      final int numBits = numWords << 6;
+      long count = 0;
+      for (int run = 0; run < starts.length && starts[run] < numBits; ++run) {
+        count += countBits(words, wordOffset, starts[run], Math.min(lasts[run] + 1, numBits));
+      }
+      return count;
+    }
+
+    @Override
+    void intersect(long[] words, int wordOffset, int numWords) {
+      final int numBits = numWords << 6;
+      int clearFrom = 0;
+      for (int run = 0; run < starts.length && clearFrom < numBits; ++run) {
+        clearBits(words, wordOffset, clearFrom, Math.min(starts[run], numBits));
+        clearFrom = lasts[run] + 1;
+      }
+      if (clearFrom < numBits) {
+        clearBits(words, wordOffset, clearFrom, numBits);
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(starts) + RamUsageEstimator.sizeOf(lasts)
+          + RamUsageEstimator.sizeOf(ranks);
+    }
+  }
+
+  /** A plain bitmap. */
+  static final class BitmapContainer extends Container {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BitmapContainer.class);
+
+    final long[] words;
+    private final int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int index) {
+      final int word = index >>> 6;
+      return word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    @Override
+    int rank(int index) {
+      final int word = index >>> 6;
+      if (word >= words.length) {
+        return cardinality;
+      }
+      return BitUtil.countBitsUpTo(words, words.length, index);
+    }
+
+    @Override
+    int next(int index) {
+      if (index >= words.length << 6) {
+        return -1;
+      }
+      return BitUtil.nextBitSet(words, words.length, index - 1);
+    }
+
+    @Override
+    int previous(int index) {
+      return BitUtil.previousBitSet(words, words.length, Math.min(index + 1, words.length << 6));
+    }
+
+    @Override
+    long intersectionCount(long[] other, int wordOffset, int numWords) {
+      long count = 0;
+      for (int i = 0, end = Math.min(numWords, words.length); i < end; ++i) {
+        count += Long.bitCount(words[i] & other[wordOffset + i]);
+      }
+      return count;
+    }
+
+    @Override
+    void intersect(long[] other, int wordOffset, int numWords) {
+      for (int i = 0; i < numWords; ++i) {
+        other[wordOffset + i] &= i < words.length ? words[i] : 0L;
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(words);
+    }
+  }
+}
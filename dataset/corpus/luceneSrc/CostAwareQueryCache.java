@@ -0,0 +1,459 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+/**
+ * A {@link QueryCache} that decides what to keep from measured costs rather than from
+ * usage frequency alone.
+ * <p>
+ * Once the {@link QueryCachingPolicy} allows a query to be cached, the matches of the query on a
+ * segment are materialized into a {@link RoaringDocIdSet}, and the time this took and the size of the
+ * result are recorded. The value of an entry is the time that it saves per byte of heap, taking
+ * into account how many times it has been reused: {@code evaluationNanos * (1 + hitCount) / ramBytesUsed}.
+ * Hit counts are halved periodically, so that they reflect recent usage and entries that used to be
+ * popular do not stay in the cache forever.
+ * When the cache is full, a new entry is only admitted if it is worth more than the entries that would
+ * have to be evicted to make room for it, and the entries with the lowest value are evicted first.
+ * Segments whose entries are rejected are remembered for a while so that the query is not
+ * materialized over and over again; matches are then computed as if there was no cache. A rejected
+ * entry is offered again after it has been looked up {@link #REJECTED_LOOKUPS_BEFORE_RETRY} times,
+ * with these lookups counted as hits, so that a query that keeps being used eventually gets cached.
+ * <p>
+ * Entries are keyed on the query and the segment core, and are removed when the segment core is closed.
+ * Like other query caches, this cache is only used when scores are not needed.
+ * <p>
+ * This class is thread-safe. Queries are evaluated outside of the cache lock.
+ *
+ * @see IndexSearcher#setQueryCache(QueryCache)
+ * @lucene.experimental
+ */
+public class CostAwareQueryCache implements QueryCache, Accountable {
+
+  // rough cost of an entry and its key in the maps, on top of the doc id set
+  static final long ENTRY_OVERHEAD_BYTES = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 4 * Long.BYTES;
+
+  /** Number of lookups of a rejected entry after which its matches are offered to the cache again. */
+  public static final int REJECTED_LOOKUPS_BEFORE_RETRY = 16;
+
+  // hit counts are halved every max(MIN_HIT_DECAY_INTERVAL, 8 * number of entries) lookups, which keeps
+  // the amortized cost of decaying constant
+  static final int MIN_HIT_DECAY_INTERVAL = 256;
+
+  private final long maxRamBytesUsed;
+  private final int maxRejectedEntries;
+
+  // guarded by this
+  private final Map<Key, Entry> entries = new HashMap<>();
+  private final Map<Key, Rejection> rejected;
+  private final Set<IndexReader.CacheKey> registeredCoreKeys = new HashSet<>();
+  private final IndexReader.ClosedListener closedListener = this::onCoreClose;
+  private long ramBytesUsed;
+  private long hitCount;
+  private long missCount;
+  private long cacheCount;
+  private long evictionCount;
+  private long rejectionCount;
+  private long evaluationNanos;
+  private long savedNanos;
+  private long lookupsSinceDecay;
+
+  /**
+   * Creates a cache that uses at most {@code maxRamBytesUsed} bytes of heap for cached entries, and
+   * remembers up to {@code maxRejectedEntries} rejected (query, segment) pairs.
+   */
+  public CostAwareQueryCache(long maxRamBytesUsed, int maxRejectedEntries) {
+    if (maxRamBytesUsed <= 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be > 0, got " + maxRamBytesUsed);
+    }
+    if (maxRejectedEntries < 0) {
+      throw new IllegalArgumentException("maxRejectedEntries must be >= 0, got " + maxRejectedEntries);
+    }
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    this.maxRejectedEntries = maxRejectedEntries;
+    // in insertion order: looking up a rejected entry must not keep it from expiring
+    this.rejected = new LinkedHashMap<Key, Rejection>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Rejection> eldest) {
+        return size() > CostAwareQueryCache.this.maxRejectedEntries;
+      }
+    };
+  }
+
+  @Override
+  public Weight doCache(Weight weight, QueryCachingPolicy policy) {
+    while (weight instanceof CachingWrapperWeight) {
+      weight = ((CachingWrapperWeight) weight).in;
+    }
+    return new CachingWrapperWeight(weight, policy);
+  }
+
+  /** Returns the cached matches of {@code query} on the segment with the given core key, or {@code null}. */
+  synchronized DocIdSet get(Query query, IndexReader.CacheKey coreKey) {
+    if (++lookupsSinceDecay >= Math.max(MIN_HIT_DECAY_INTERVAL, 8L * entries.size())) {
+      decayHitCounts();
+    }
+    final Entry entry = entries.get(new Key(query, coreKey));
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    entry.hitCount++;
+    savedNanos += entry.evaluationNanos;
+    return entry.docIdSet;
+  }
+
+  /** Halves the hit counts of cached and rejected entries. */
+  private void decayHitCounts() {
+    assert Thread.holdsLock(this);
+    for (Entry entry : entries.values()) {
+      entry.hitCount >>>= 1;
+    }
+    for (Rejection rejection : rejected.values()) {
+      rejection.lookups >>>= 1;
+    }
+    lookupsSinceDecay = 0;
+  }
+
+  /**
+   * Returns true if the matches of {@code query} on the given segment were recently not worth caching,
+   * and should not be offered again yet.
+   */
+  synchronized boolean isRejected(Query query, IndexReader.CacheKey coreKey) {
+    final Rejection rejection = rejected.get(new Key(query, coreKey));
+    if (rejection == null) {
+      return false;
+    }
+    rejection.lookups++;
+    // the rejection is kept until the entry is offered again, so that its lookups count as hits
+    return --rejection.remainingLookups > 0;
+  }
+
+  /**
+   * Offers the matches of a query on a segment, which took {@code evaluationNanos} to compute, to the cache.
+   * Returns whether the entry was admitted.
+   */
+  boolean offer(Query query, IndexReader.CacheHelper coreCacheHelper, DocIdSet docIdSet, long evaluationNanos) {
+    final IndexReader.CacheKey coreKey = coreCacheHelper.getKey();
+    final Entry entry = new Entry(new Key(query, coreKey), docIdSet, evaluationNanos);
+    final boolean admitted;
+    final boolean newCore;
+    synchronized (this) {
+      this.evaluationNanos += evaluationNanos;
+      final Rejection rejection = rejected.remove(entry.key);
+      if (rejection != null) {
+        // the query kept being used while its matches were not cached
+        entry.hitCount = rejection.lookups;
+      }
+      admitted = admit(entry);
+      newCore = admitted && registeredCoreKeys.add(coreKey);
+    }
+    if (newCore) {
+      coreCacheHelper.addClosedListener(closedListener);
+    }
+    return admitted;
+  }
+
+  private boolean admit(Entry entry) {
+    assert Thread.holdsLock(this);
+    if (entries.containsKey(entry.key)) {
+      // another thread cached the same matches in the meantime
+      return false;
+    }
+    if (entry.ramBytesUsed > maxRamBytesUsed) {
+      // the matches will never fit, don't offer them again
+      reject(entry, Integer.MAX_VALUE);
+      return false;
+    }
+    if (ramBytesUsed + entry.ramBytesUsed > maxRamBytesUsed) {
+      // find the cheapest entries that would need to go, and only evict them if they are worth less
+      final List<Entry> candidates = new ArrayList<>(entries.values());
+      Collections.sort(candidates, (e1, e2) -> Double.compare(e1.value(), e2.value()));
+      final double value = entry.value();
+      long freed = 0;
+      int numVictims = 0;
+      for (Entry candidate : candidates) {
+        if (ramBytesUsed - freed + entry.ramBytesUsed <= maxRamBytesUsed) {
+          break;
+        }
+        if (candidate.value() >= value) {
+          reject(entry, REJECTED_LOOKUPS_BEFORE_RETRY);
+          return false;
+        }
+        freed += candidate.ramBytesUsed;
+        numVictims++;
+      }
+      for (Entry victim : candidates.subList(0, numVictims)) {
+        remove(victim.key);
+        evictionCount++;
+      }
+    }
+    entries.put(entry.key, entry);
+    ramBytesUsed += entry.ramBytesUsed;
+    cacheCount++;
+    return true;
+  }
+
+  private void reject(Entry entry, int lookupsBeforeRetry) {
+    rejectionCount++;
+    if (maxRejectedEntries > 0) {
+      rejected.put(entry.key, new Rejection(entry.hitCount, lookupsBeforeRetry));
+    }
+  }
+
+  private void remove(Key key) {
+    final Entry entry = entries.remove(key);
+    if (entry != null) {
+      ramBytesUsed -= entry.ramBytesUsed;
+    }
+  }
+
+  private synchronized void onCoreClose(IndexReader.CacheKey coreKey) {
+    registeredCoreKeys.remove(coreKey);
+    for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext(); ) {
+      final Key key = it.next();
+      if (key.coreKey == coreKey) {
+        ramBytesUsed -= entries.get(key).ramBytesUsed;
+        it.remove();
+      }
+    }
+    rejected.keySet().removeIf(key -> key.coreKey == coreKey);
+  }
+
+  /** Removes all entries. Statistics are not reset. */
+  public synchronized void clear() {
+    entries.clear();
+    rejected.clear();
+    ramBytesUsed = 0;
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  /** Returns the maximum amount of heap that cached entries may use. */
+  public long getMaxRamBytesUsed() {
+    return maxRamBytesUsed;
+  }
+
+  /** Returns the number of cached (query, segment) entries. */
+  public synchronized int getCacheSize() {
+    return entries.size();
+  }
+
+  /** Returns the number of lookups that found cached matches. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of lookups, for queries that the policy allowed to cache, that found no cached matches. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the number of entries that have been added to the cache. */
+  public synchronized long getCacheCount() {
+    return cacheCount;
+  }
+
+  /** Returns the number of entries that have been evicted to make room for more valuable ones. */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /** Returns the number of entries that were not admitted because they were worth less than the cached ones. */
+  public synchronized long getRejectionCount() {
+    return rejectionCount;
+  }
+
+  /** Returns the total time spent materializing matches in order to offer them to the cache, in nanoseconds. */
+  public synchronized long getEvaluationNanos() {
+    return evaluationNanos;
+  }
+
+  /** Returns an estimate of the time that cache hits saved, in nanoseconds, based on the measured evaluation times. */
+  public synchronized long getSavedNanos() {
+    return savedNanos;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "CostAwareQueryCache(size=" + entries.size() + ", ramBytesUsed=" + ramBytesUsed
+        + ", maxRamBytesUsed=" + maxRamBytesUsed + ", hits=" + hitCount + ", misses=" + missCount
+        + ", cached=" + cacheCount + ", evictions=" + evictionCount + ", rejections=" + rejectionCount
+        + ", evaluationMillis=" + evaluationNanos / 1_000_000 + ", savedMillis=" + savedNanos / 1_000_000 + ")";
+  }
+
+  /** Materializes the matches of {@code weight} on the given leaf. */
+  static DocIdSet evaluate(Weight weight, LeafReaderContext context) throws IOException {
+    final Scorer scorer = weight.scorer(context);
+    if (scorer == null) {
+      return DocIdSet.EMPTY;
+    }
+    final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(context.reader().maxDoc());
+    final DocIdSetIterator iterator = scorer.iterator();
+    for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+      builder.add(doc);
+    }
+    return builder.build();
+  }
+
+  private static final class Key {
+    final Query query;
+    final IndexReader.CacheKey coreKey;
+
+    Key(Query query, IndexReader.CacheKey coreKey) {
+      this.query = query;
+      this.coreKey = coreKey;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || obj.getClass() != Key.class) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return coreKey == that.coreKey && query.equals(that.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * query.hashCode() + System.identityHashCode(coreKey);
+    }
+  }
+
+  private static final class Entry {
+    final Key key;
+    final DocIdSet docIdSet;
+    final long evaluationNanos;
+    final long ramBytesUsed;
+    long hitCount; // guarded by the cache, decays over time
+
+    Entry(Key key, DocIdSet docIdSet, long evaluationNanos) {
+      this.key = key;
+      this.docIdSet = docIdSet;
+      this.evaluationNanos = evaluationNanos;
+      this.ramBytesUsed = docIdSet.ramBytesUsed() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    /** The time saved per byte, by recent hits and by the next one. */
+    double value() {
+      return (double) Math.max(1, evaluationNanos) * (1 + hitCount) / ramBytesUsed;
+    }
+  }
+
+  private static final class Rejection {
+    // guarded by the cache
+    long lookups; // decays like the hit counts of entries
+    int remainingLookups;
+
+    Rejection(long lookups, int remainingLookups) {
+      this.lookups = lookups;
+      this.remainingLookups = remainingLookups;
+    }
+  }
+
+  private class CachingWrapperWeight extends FilterWeight {
+
+    private final Weight in;
+    private final QueryCachingPolicy policy;
+    // we use an AtomicBoolean because Weight.scorer may be called from multiple
+    // threads when IndexSearcher is created with threads
+    private final AtomicBoolean used = new AtomicBoolean(false);
+
+    CachingWrapperWeight(Weight in, QueryCachingPolicy policy) {
+      super(in);
+      this.in = in;
+      this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Returns the cached or freshly evaluated matches on the given leaf, or {@code null} if the
+     * query should run as if there was no cache.
+     */
+    private DocIdSet docIdSet(LeafReaderContext context) throws IOException {
+      if (used.compareAndSet(false, true)) {
+        policy.onUse(getQuery());
+      }
+      final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+      if (cacheHelper == null || in.isCacheable(context) == false || policy.shouldCache(in.getQuery()) == false) {
+        return null;
+      }
+      final Query query = in.getQuery();
+      final DocIdSet cached = get(query, cacheHelper.getKey());
+      if (cached != null) {
+        return cached;
+      }
+      if (isRejected(query, cacheHelper.getKey())) {
+        return null;
+      }
+      final long start = System.nanoTime();
+      final DocIdSet docIdSet = evaluate(in, context);
+      offer(query, cacheHelper, docIdSet, System.nanoTime() - start);
+      // the matches were materialized anyway, use them for this search
+      return docIdSet;
+    }
+
+    @Override
+    public Scorer scorer(LeafReaderContext context) throws IOException {
+      final DocIdSet docIdSet = docIdSet(context);
+      if (docIdSet == null) {
+        return in.scorer(context);
+      }
+      final DocIdSetIterator iterator = docIdSet.iterator();
+      if (iterator == null) {
+        return null;
+      }
+      return new ConstantScoreScorer(this, 0f, ScoreMode.COMPLETE_NO_SCORES, iterator);
+    }
+
+    @Override
+    public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+      final DocIdSet docIdSet = docIdSet(context);
+      if (docIdSet == null) {
+        return in.bulkScorer(context);
+      }
+      final DocIdSetIterator iterator = docIdSet.iterator();
+      if (iterator == null) {
+        return null;
+      }
+      return new DefaultBulkScorer(new ConstantScoreScorer(this, 0f, ScoreMode.COMPLETE_NO_SCORES, iterator));
+    }
+  }
+}
@@ -18,25 +18,43 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.QueryTimeout;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.index.Term;
@@ -46,6 +64,7 @@ import org.apache.lucene.search.similarities.BM25Similarity;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FutureArrays;
 import org.apache.lucene.util.ThreadInterruptedException;
 
 /** Implements search over a single IndexReader.
@@ -101,6 +120,13 @@ public class IndexSearcher {
    */
   private static final int TOTAL_HITS_THRESHOLD = 1000;
 
+  /**
+   * Thresholds for index slice allocation logic. To change the default, extend
+   * <code> IndexSearcher</code> and use custom values
+   */
+  private static final int MAX_DOCS_PER_SLICE = 250_000;
+  private static final int MAX_SEGMENTS_PER_SLICE = 5;
+
   final IndexReader reader; // package private for testing!
   
   // NOTE: these members might change in incompatible ways
@@ -118,6 +144,23 @@ public class IndexSearcher {
 
   private QueryCache queryCache = DEFAULT_QUERY_CACHE;
   private QueryCachingPolicy queryCachingPolicy = DEFAULT_CACHING_POLICY;
+  private QueryRewriteCache queryRewriteCache = null;
+
+  private QueryTimeout queryTimeout = null;
+  // whether or not the last search exited early because of the query timeout
+  private volatile boolean partialResult = false;
+
+  private volatile int maxConcurrentSlicesPerQuery = Integer.MAX_VALUE;
+  private final SliceExecutionStats sliceExecutionStats = new SliceExecutionStats();
+
+  /**
+   * The number of fields whose {@link CollectionStatistics} are cached, so that queries on
+   * many distinct (for instance non-existent) fields can't make the cache grow without bounds
+   */
+  private static final int MAX_CACHED_COLLECTION_STATISTICS = 1024;
+  // the reader never changes, so the statistics of a field are computed once and for all,
+  // an empty value means that the field has no indexed terms
+  private final Map<String, Optional<CollectionStatistics>> collectionStatisticsCache = new ConcurrentHashMap<>();
 
   /**
    * Expert: returns a default Similarity instance.
@@ -239,6 +282,57 @@ public class IndexSearcher {
     this.queryCachingPolicy = Objects.requireNonNull(queryCachingPolicy);
   }
 
+  /**
+   * Set the {@link QueryRewriteCache} that {@link #rewrite(Query)} uses to avoid rewriting the same queries
+   * over and over, or {@code null} to always rewrite queries. The same cache can be set on the searchers of
+   * successive readers of an index: entries are kept per reader and dropped when their reader is closed.
+   * This method should be called <b>before</b> starting using this {@link IndexSearcher}.
+   * <p>NOTE: When using a rewrite cache, queries should not be modified after they have been passed to IndexSearcher.
+   * @lucene.experimental
+   */
+  public void setQueryRewriteCache(QueryRewriteCache queryRewriteCache) {
+    this.queryRewriteCache = queryRewriteCache;
+  }
+
+  /**
+   * Return the rewrite cache of this {@link IndexSearcher}, or {@code null} if rewritten queries are not cached.
+   * @lucene.experimental
+   */
+  public QueryRewriteCache getQueryRewriteCache() {
+    return queryRewriteCache;
+  }
+
+  /**
+   * Set a {@link QueryTimeout} for all searches that run through this {@link IndexSearcher}.
+   * The timeout is checked before each slice is started and periodically while documents are scored,
+   * so that searches stop shortly after {@link QueryTimeout#shouldExit()} returns true. Such searches
+   * return the hits collected so far, and {@link #timedOut()} returns true.
+   * A value of {@code null} disables timeouts.
+   * @see QueryCancellation
+   * @lucene.experimental
+   */
+  public void setTimeout(QueryTimeout queryTimeout) {
+    this.queryTimeout = queryTimeout;
+  }
+
+  /**
+   * Returns the {@link QueryTimeout} that was set through {@link #setTimeout(QueryTimeout)},
+   * or {@code null} if timeouts are disabled.
+   * @lucene.experimental
+   */
+  public QueryTimeout getTimeout() {
+    return queryTimeout;
+  }
+
+  /**
+   * Returns true if the last search through this searcher exited early because of its
+   * {@link #setTimeout(QueryTimeout) timeout}, meaning that the results are partial.
+   * @lucene.experimental
+   */
+  public boolean timedOut() {
+    return partialResult;
+  }
+
   /**
    * Return the query cache of this {@link IndexSearcher}. 
    * This will be either the {@link #getDefaultQueryCachingPolicy() default policy} or the policy that was last set through {@link #setQueryCachingPolicy(QueryCachingPolicy)}.
@@ -251,13 +345,116 @@ public class IndexSearcher {
   /**
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
    * Each {@link LeafSlice} is executed in a single thread. 
-   * By default there will be one {@link LeafSlice} per leaf ({@link org.apache.lucene.index.LeafReaderContext}).
+   * By default, segments with more than {@code MAX_DOCS_PER_SLICE} documents get their own slice, and
+   * smaller segments are grouped so that each slice has at most {@code MAX_DOCS_PER_SLICE} documents
+   * and {@code MAX_SEGMENTS_PER_SLICE} segments.
+   * @see #slices(List, int, int)
    */
   protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
-    LeafSlice[] slices = new LeafSlice[leaves.size()];
-    for (int i = 0; i < slices.length; i++) {
-      slices[i] = new LeafSlice(leaves.get(i));
+    return slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+  }
+
+  /**
+   * Static method to segregate LeafReaderContexts amongst multiple slices, so that each slice
+   * holds a similar amount of work.
+   * <p>
+   * Leaves are visited from the largest to the smallest. A leaf with more than
+   * {@code maxDocsPerSlice} documents gets a slice of its own. Smaller leaves are added to the
+   * current slice until it would exceed {@code maxDocsPerSlice} documents or
+   * {@code maxSegmentsPerSlice} leaves, at which point a new slice is started. Within a slice,
+   * leaves keep their index order.
+   *
+   * @param leaves the leaves to group
+   * @param maxDocsPerSlice the maximum number of documents ({@link org.apache.lucene.index.IndexReader#maxDoc()}) per slice
+   * @param maxSegmentsPerSlice the maximum number of leaves per slice
+   * @lucene.experimental
+   */
+  public static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+    return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+  }
+
+  /**
+   * Same as {@link #slices(List, int, int)}, but if {@code allowSegmentPartitions} is {@code true},
+   * a leaf with more than {@code maxDocsPerSlice} documents is split into doc ID range
+   * {@link LeafReaderContextPartition partitions} of at most {@code maxDocsPerSlice} documents, each
+   * in a slice of its own. This lets a concurrent search use several threads on an index that has
+   * been force-merged to a single segment. Each partition gets its own {@link BulkScorer}, so
+   * per-leaf setup cost (such as term lookups) is paid once per partition.
+   *
+   * @lucene.experimental
+   */
+  public static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice,
+      boolean allowSegmentPartitions) {
+    if (maxDocsPerSlice <= 0) {
+      throw new IllegalArgumentException("maxDocsPerSlice must be > 0, got " + maxDocsPerSlice);
+    }
+    if (maxSegmentsPerSlice <= 0) {
+      throw new IllegalArgumentException("maxSegmentsPerSlice must be > 0, got " + maxSegmentsPerSlice);
+    }
+    // Make a copy so we can sort:
+    List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+
+    // Sort by maxDoc, descending:
+    sortedLeaves.sort(Collections.reverseOrder(Comparator.comparingInt(l -> l.reader().maxDoc())));
+
+    final List<LeafReaderContext> partitionedLeaves = new ArrayList<>();
+    final List<List<LeafReaderContext>> groupedLeaves = new ArrayList<>();
+    long docSum = 0;
+    List<LeafReaderContext> group = null;
+    for (LeafReaderContext ctx : sortedLeaves) {
+      final int maxDoc = ctx.reader().maxDoc();
+      if (maxDoc > maxDocsPerSlice) {
+        assert group == null;
+        if (allowSegmentPartitions) {
+          partitionedLeaves.add(ctx);
+        } else {
+          groupedLeaves.add(Collections.singletonList(ctx));
+        }
+      } else {
+        if (group != null && (group.size() >= maxSegmentsPerSlice || docSum + maxDoc > maxDocsPerSlice)) {
+          // the current slice is full
+          group = null;
+        }
+        if (group == null) {
+          group = new ArrayList<>();
+          groupedLeaves.add(group);
+          docSum = 0;
+        }
+        group.add(ctx);
+        docSum += maxDoc;
+      }
+    }
+
+    final List<LeafSlice> partitionSlices = new ArrayList<>();
+    for (LeafReaderContext ctx : partitionedLeaves) {
+      final int maxDoc = ctx.reader().maxDoc();
+      final int numPartitions = (int) ((maxDoc + (long) maxDocsPerSlice - 1) / maxDocsPerSlice);
+      // the first maxDoc % numPartitions partitions get one extra document, so that partition
+      // sizes differ by at most one
+      final int docsPerPartition = maxDoc / numPartitions;
+      final int numLargerPartitions = maxDoc % numPartitions;
+      int minDocId = 0;
+      for (int i = 0; i < numPartitions; i++) {
+        final int maxDocId = minDocId + docsPerPartition + (i < numLargerPartitions ? 1 : 0);
+        partitionSlices.add(new LeafSlice(LeafReaderContextPartition.createFromAndTo(ctx, minDocId, maxDocId)));
+        minDocId = maxDocId;
+      }
+      assert minDocId == maxDoc;
+    }
+
+    LeafSlice[] slices = new LeafSlice[partitionSlices.size() + groupedLeaves.size()];
+    int upto = 0;
+    for (LeafSlice slice : partitionSlices) {
+      slices[upto++] = slice;
+    }
+    for (List<LeafReaderContext> currentLeaf : groupedLeaves) {
+      LeafReaderContext[] sliceLeaves = currentLeaf.toArray(new LeafReaderContext[0]);
+      // search leaves of a slice in index order, like a non-concurrent search would
+      Arrays.sort(sliceLeaves, Comparator.comparingInt(l -> l.ord));
+      slices[upto] = new LeafSlice(sliceLeaves);
+      ++upto;
     }
+
     return slices;
   }
   
@@ -290,6 +487,128 @@ public class IndexSearcher {
     return reader.document(docID, fieldsToLoad);
   }
 
+  /**
+   * Returns the stored fields of several documents, in the order of {@code docIDs}.
+   * @see #docs(int[], StoredFieldVisitor[])
+   */
+  public Document[] docs(int[] docIDs) throws IOException {
+    return docs(docIDs, (Set<String>) null);
+  }
+
+  /**
+   * Returns the given stored fields of several documents, in the order of {@code docIDs}.
+   * If {@code fieldsToLoad} is {@code null}, all stored fields are loaded.
+   * @see #docs(int[], StoredFieldVisitor[])
+   */
+  public Document[] docs(int[] docIDs, Set<String> fieldsToLoad) throws IOException {
+    final DocumentStoredFieldVisitor[] visitors = new DocumentStoredFieldVisitor[docIDs.length];
+    for (int i = 0; i < visitors.length; ++i) {
+      visitors[i] = fieldsToLoad == null ? new DocumentStoredFieldVisitor() : new DocumentStoredFieldVisitor(fieldsToLoad);
+    }
+    docs(docIDs, visitors);
+    final Document[] documents = new Document[docIDs.length];
+    for (int i = 0; i < documents.length; ++i) {
+      documents[i] = visitors[i].getDocument();
+    }
+    return documents;
+  }
+
+  /**
+   * Visits the stored fields of several documents: {@code visitors[i]} visits the document {@code docIDs[i]}.
+   * <p>
+   * This is faster than calling {@link #doc(int, StoredFieldVisitor)} once per document, for instance
+   * for a page of hits: documents are visited in doc ID order, one leaf at a time, and documents of
+   * the same leaf share a stored fields reader that is optimized for sequential access so that
+   * documents that live in the same compressed block only decompress it once. If this searcher has
+   * an {@link #getExecutor() executor}, leaves are visited concurrently, with the calling thread
+   * taking part; each visitor is only ever called from one thread.
+   * @throws IllegalArgumentException if the arrays have different lengths or a doc ID is out of bounds
+   * @lucene.experimental
+   */
+  public void docs(int[] docIDs, StoredFieldVisitor[] visitors) throws IOException {
+    if (docIDs.length != visitors.length) {
+      throw new IllegalArgumentException("docIDs and visitors must have the same length, got "
+          + docIDs.length + " and " + visitors.length);
+    }
+    final int maxDoc = reader.maxDoc();
+    // sort doc IDs, and keep track of their index in the original order in the lower bits
+    final long[] sorted = new long[docIDs.length];
+    for (int i = 0; i < docIDs.length; ++i) {
+      final int docID = docIDs[i];
+      if (docID < 0 || docID >= maxDoc) {
+        throw new IllegalArgumentException("docID must be >= 0 and < maxDoc=" + maxDoc + ", got " + docID);
+      }
+      sorted[i] = ((long) docID << 32) | i;
+    }
+    Arrays.sort(sorted);
+
+    final List<FutureTask<Void>> tasks = new ArrayList<>();
+    for (int from = 0; from < sorted.length; ) {
+      final LeafReaderContext ctx = leafContexts.get(ReaderUtil.subIndex((int) (sorted[from] >>> 32), leafContexts));
+      final long leafEnd = (long) (ctx.docBase + ctx.reader().maxDoc()) << 32;
+      int to = from + 1;
+      while (to < sorted.length && sorted[to] < leafEnd) {
+        ++to;
+      }
+      final int start = from, end = to;
+      tasks.add(new FutureTask<>(() -> {
+        visitLeafDocs(ctx, sorted, start, end, visitors);
+        return null;
+      }));
+      from = to;
+    }
+
+    if (executor == null || tasks.size() <= 1) {
+      for (FutureTask<Void> task : tasks) {
+        task.run();
+      }
+    } else {
+      for (int i = 0; i < tasks.size() - 1; ++i) {
+        executor.execute(tasks.get(i));
+      }
+      // the calling thread visits the last leaf, then helps with the leaves that have not started yet
+      for (int i = tasks.size() - 1; i >= 0; --i) {
+        tasks.get(i).run();
+      }
+    }
+    for (FutureTask<Void> task : tasks) {
+      try {
+        task.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /** Visits {@code sorted[from:to]}, which are all in the given leaf. */
+  private static void visitLeafDocs(LeafReaderContext ctx, long[] sorted, int from, int to,
+      StoredFieldVisitor[] visitors) throws IOException {
+    final LeafReader leafReader = ctx.reader();
+    StoredFieldsReader fieldsReader = null;
+    if (to - from > 1 && leafReader instanceof CodecReader) {
+      // the merge instance decompresses whole blocks and keeps the last one around, which only
+      // pays off if several documents are read from this leaf
+      fieldsReader = ((CodecReader) leafReader).getFieldsReader();
+      if (fieldsReader != null) {
+        fieldsReader = fieldsReader.getMergeInstance();
+      }
+    }
+    for (int i = from; i < to; ++i) {
+      final int docID = (int) (sorted[i] >>> 32) - ctx.docBase;
+      final StoredFieldVisitor visitor = visitors[(int) sorted[i]];
+      if (fieldsReader != null) {
+        fieldsReader.visitDocument(docID, visitor);
+      } else {
+        leafReader.document(docID, visitor);
+      }
+    }
+  }
+
   /** Expert: Set the Similarity implementation used by this IndexSearcher.
    *
    */
@@ -320,26 +639,49 @@ public class IndexSearcher {
     // some counts can be computed in constant time
     if (query instanceof MatchAllDocsQuery) {
       return reader.numDocs();
-    } else if (query instanceof TermQuery && reader.hasDeletions() == false) {
-      Term term = ((TermQuery) query).getTerm();
-      int count = 0;
-      for (LeafReaderContext leaf : reader.leaves()) {
-        count += leaf.reader().docFreq(term);
+    }
+
+    // others can be computed in constant time on some leaves, only the remaining leaves need to be searched
+    int countedDocs = 0;
+    int numCountedLeaves = 0;
+    final boolean[] countedLeaves = new boolean[leafContexts.size()];
+    for (LeafReaderContext leaf : leafContexts) {
+      final int leafCount = leafCount(query, leaf);
+      if (leafCount >= 0) {
+        countedDocs += leafCount;
+        countedLeaves[leaf.ord] = true;
+        numCountedLeaves++;
       }
-      return count;
+    }
+    if (numCountedLeaves == leafContexts.size()) {
+      return countedDocs;
     }
 
-    // general case: create a collector and count matches
+    // count matches on the remaining leaves, possibly concurrently
+    final boolean skipCountedLeaves = numCountedLeaves > 0;
+    final int totalCountedDocs = countedDocs;
     final CollectorManager<TotalHitCountCollector, Integer> collectorManager = new CollectorManager<TotalHitCountCollector, Integer>() {
 
       @Override
       public TotalHitCountCollector newCollector() throws IOException {
-        return new TotalHitCountCollector();
+        if (skipCountedLeaves == false) {
+          return new TotalHitCountCollector();
+        }
+        return new TotalHitCountCollector() {
+          @Override
+          protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            if (countedLeaves[context.ord]) {
+              // already counted from index statistics, this also skips every partition of the leaf
+              throw new CollectionTerminatedException();
+            }
+            super.doSetNextReader(context);
+          }
+        };
       }
 
       @Override
       public Integer reduce(Collection<TotalHitCountCollector> collectors) throws IOException {
-        int total = 0;
+        int total = totalCountedDocs;
         for (TotalHitCountCollector collector : collectors) {
           total += collector.getTotalHits();
         }
@@ -350,6 +692,96 @@ public class IndexSearcher {
     return search(query, collectorManager);
   }
 
+  /**
+   * Expert: returns the number of documents of the given leaf that match the given query if it can be
+   * computed without iterating over matches, typically from index statistics, or {@code -1} otherwise.
+   * {@link #count(Query)} only searches the leaves for which this method returns {@code -1}.
+   * <p>
+   * The default implementation knows about {@link MatchAllDocsQuery}, {@link MatchNoDocsQuery},
+   * {@link TermQuery} (exact on leaves without deletions, or when the term does not occur),
+   * {@link PointRangeQuery} (exact when the range does not intersect the leaf's points, or when it
+   * covers all of them on a leaf without deletions) and {@link DocValuesFieldExistsQuery} (exact when the
+   * leaf has no doc values for the field) and {@link NormsFieldExistsQuery} (exact when the leaf has no
+   * norms for the field, or when it has no deletions and every document has terms for the field; a value
+   * that produces no tokens has a norm but no terms, so other leaves are searched). Subclasses can override
+   * it to add query types, falling back to this implementation.
+   *
+   * @param query the rewritten query
+   * @param ctx the leaf
+   * @lucene.experimental
+   */
+  protected int leafCount(Query query, LeafReaderContext ctx) throws IOException {
+    final LeafReader leafReader = ctx.reader();
+    final boolean hasDeletions = leafReader.hasDeletions();
+    if (query instanceof MatchAllDocsQuery) {
+      return leafReader.numDocs();
+    } else if (query instanceof MatchNoDocsQuery) {
+      return 0;
+    } else if (query instanceof TermQuery) {
+      final int docFreq = leafReader.docFreq(((TermQuery) query).getTerm());
+      if (docFreq == 0 || hasDeletions == false) {
+        return docFreq;
+      }
+    } else if (query instanceof PointRangeQuery) {
+      return pointRangeLeafCount((PointRangeQuery) query, leafReader, hasDeletions);
+    } else if (query instanceof DocValuesFieldExistsQuery) {
+      final FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(((DocValuesFieldExistsQuery) query).getField());
+      if (fieldInfo == null || fieldInfo.getDocValuesType() == DocValuesType.NONE) {
+        return 0;
+      }
+    } else if (query instanceof NormsFieldExistsQuery) {
+      final String field = ((NormsFieldExistsQuery) query).getField();
+      final FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(field);
+      if (fieldInfo == null || fieldInfo.hasNorms() == false) {
+        return 0;
+      }
+      if (hasDeletions == false) {
+        final Terms terms = leafReader.terms(field);
+        if (terms != null && terms.getDocCount() == leafReader.maxDoc()) {
+          return leafReader.maxDoc();
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int pointRangeLeafCount(PointRangeQuery query, LeafReader leafReader, boolean hasDeletions) throws IOException {
+    final PointValues values = leafReader.getPointValues(query.getField());
+    if (values == null) {
+      // no document of this leaf has points for this field
+      return 0;
+    }
+    final int numDims = query.getNumDims();
+    final int bytesPerDim = query.getBytesPerDim();
+    if (values.getNumIndexDimensions() != numDims || values.getBytesPerDimension() != bytesPerDim) {
+      // let the query report the inconsistency
+      return -1;
+    }
+    final byte[] lowerPoint = query.getLowerPoint();
+    final byte[] upperPoint = query.getUpperPoint();
+    final byte[] minPackedValue = values.getMinPackedValue();
+    final byte[] maxPackedValue = values.getMaxPackedValue();
+    boolean coversAll = true;
+    for (int dim = 0; dim < numDims; dim++) {
+      final int from = dim * bytesPerDim;
+      final int to = from + bytesPerDim;
+      if (FutureArrays.compareUnsigned(lowerPoint, from, to, maxPackedValue, from, to) > 0
+          || FutureArrays.compareUnsigned(upperPoint, from, to, minPackedValue, from, to) < 0) {
+        // the range does not intersect the points of this leaf
+        return 0;
+      }
+      if (FutureArrays.compareUnsigned(lowerPoint, from, to, minPackedValue, from, to) > 0
+          || FutureArrays.compareUnsigned(upperPoint, from, to, maxPackedValue, from, to) < 0) {
+        coversAll = false;
+      }
+    }
+    if (coversAll && hasDeletions == false) {
+      // all points of the leaf are in the range, so every document that has a point matches
+      return values.getDocCount();
+    }
+    return -1;
+  }
+
   /** Returns the leaf slices used for concurrent searching, or null if no {@code Executor} was passed to the constructor.
    *
    * @lucene.experimental */
@@ -374,10 +806,9 @@ public class IndexSearcher {
 
     final CollectorManager<TopScoreDocCollector, TopDocs> manager = new CollectorManager<TopScoreDocCollector, TopDocs>() {
 
-      private final HitsThresholdChecker hitsThresholdChecker = (executor == null || leafSlices.length <= 1) ? HitsThresholdChecker.create(TOTAL_HITS_THRESHOLD) :
-          HitsThresholdChecker.createShared(TOTAL_HITS_THRESHOLD);
+      private final HitsThresholdChecker hitsThresholdChecker = newHitsThresholdChecker();
 
-      private final MaxScoreAccumulator minScoreAcc = (executor == null || leafSlices.length <= 1) ? null : new MaxScoreAccumulator();
+      private final MaxScoreAccumulator minScoreAcc = newMaxScoreAccumulator();
 
       @Override
       public TopScoreDocCollector newCollector() throws IOException {
@@ -399,6 +830,34 @@ public class IndexSearcher {
     return search(query, manager);
   }
 
+  /**
+   * Returns true if {@link #search(Query, CollectorManager)} searches more than one slice, each with its own collector.
+   */
+  private boolean hasConcurrentSlices() {
+    return executor != null && leafSlices.length > 1;
+  }
+
+  /**
+   * Creates the checker of the total hits threshold for the collectors of one top hits search. With
+   * concurrent slices, a single checker is shared by all collectors so that the threshold applies to
+   * the hits counted by all slices together.
+   */
+  private HitsThresholdChecker newHitsThresholdChecker() {
+    return hasConcurrentSlices() ? HitsThresholdChecker.createShared(TOTAL_HITS_THRESHOLD)
+        : HitsThresholdChecker.create(TOTAL_HITS_THRESHOLD);
+  }
+
+  /**
+   * Creates the accumulator through which the collectors of one top hits search share their minimum
+   * competitive scores. Each collector publishes the score of its k-th best hit, and raises its own
+   * {@link Scorable#setMinCompetitiveScore(float) minimum competitive score} to the best of the published
+   * values, so that every slice can skip the blocks that cannot compete with the global top k.
+   * The accumulator is lock-free. It is only needed when several slices are searched concurrently.
+   */
+  private MaxScoreAccumulator newMaxScoreAccumulator() {
+    return hasConcurrentSlices() ? new MaxScoreAccumulator() : null;
+  }
+
   /** Finds the top <code>n</code> hits for <code>query</code>.
    *
    * @throws BooleanQuery.TooManyClauses If a query would exceed {@link BooleanQuery#getMaxClauseCount()} clauses.
@@ -416,6 +875,7 @@ public class IndexSearcher {
    */
   public void search(Query query, Collector results)
     throws IOException {
+    partialResult = false;
     query = rewrite(query);
     search(leafContexts, createWeight(query, results.scoreMode(), 1), results);
   }
@@ -484,10 +944,9 @@ public class IndexSearcher {
 
     final CollectorManager<TopFieldCollector, TopFieldDocs> manager = new CollectorManager<TopFieldCollector, TopFieldDocs>() {
 
-      private final HitsThresholdChecker hitsThresholdChecker = (executor == null || leafSlices.length <= 1) ? HitsThresholdChecker.create(TOTAL_HITS_THRESHOLD) :
-          HitsThresholdChecker.createShared(TOTAL_HITS_THRESHOLD);
+      private final HitsThresholdChecker hitsThresholdChecker = newHitsThresholdChecker();
 
-      private final MaxScoreAccumulator minScoreAcc = (executor == null || leafSlices.length <= 1) ? null : new MaxScoreAccumulator();
+      private final MaxScoreAccumulator minScoreAcc = newMaxScoreAccumulator();
 
       @Override
       public TopFieldCollector newCollector() throws IOException {
@@ -518,14 +977,41 @@ public class IndexSearcher {
   * Lower-level search API.
   * Search all leaves using the given {@link CollectorManager}.
   * In contrast to {@link #search(Query, Collector)}, this method will use the searcher's {@link Executor} in order to parallelize execution of the collection on the configured {@link #leafSlices}.
+  * The calling thread searches the last slice and then helps with the slices that the executor has not started yet, so it never
+  * sits idle behind a slow slice. This works with any executor, including a {@link java.util.concurrent.ForkJoinPool}.
+  * If a {@link #setTimeout(QueryTimeout) timeout} is set, slices that have not started when it exits are skipped.
+  * The number of slices of the query that run at the same time is bounded by {@link #setMaxConcurrentSlicesPerQuery(int)}.
   * @see CollectorManager
+  * @see #search(Query, CollectorManager, QueryProfile)
   * @lucene.experimental
   */
   public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
-    if (executor == null || leafSlices.length <= 1) {
+    return search(query, collectorManager, null);
+  }
+
+  /**
+  * Same as {@link #search(Query, CollectorManager)}, but also records the timings and counters of each phase,
+  * slice and leaf of the search into the given {@link QueryProfile}, unless it is {@code null}.
+  * @lucene.experimental
+  */
+  public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager, QueryProfile profile) throws IOException {
+    if (profile != null) {
+      profile.start();
+    }
+    if (hasConcurrentSlices() == false) {
       final C collector = collectorManager.newCollector();
-      search(query, collector);
-      return collectorManager.reduce(Collections.singletonList(collector));
+      if (profile == null) {
+        search(query, collector);
+        return collectorManager.reduce(Collections.singletonList(collector));
+      }
+      partialResult = false;
+      final Weight weight = rewriteAndCreateWeight(query, collector.scoreMode(), profile);
+      final QueryProfile.SliceProfile sliceProfile = profile.addSlice();
+      final long startNanos = System.nanoTime();
+      sliceProfile.started(0, true);
+      search(leafContexts, sliceProfile.wrap(weight), sliceProfile.wrap(collector));
+      profile.setSearchNanos(System.nanoTime() - startNanos);
+      return reduce(collectorManager, Collections.singletonList(collector), profile);
     } else {
       final List<C> collectors = new ArrayList<>(leafSlices.length);
       ScoreMode scoreMode = null;
@@ -542,24 +1028,32 @@ public class IndexSearcher {
         // no segments
         scoreMode = ScoreMode.COMPLETE;
       }
-      query = rewrite(query);
-      final Weight weight = createWeight(query, scoreMode, 1);
-      final List<Future<C>> topDocsFutures = new ArrayList<>(leafSlices.length);
+      final Weight weight = rewriteAndCreateWeight(query, scoreMode, profile);
+      partialResult = false;
+      final SliceExecution execution = new SliceExecution(sliceExecutionStats, leafSlices.length);
+      final List<FutureTask<C>> topDocsFutures = new ArrayList<>(leafSlices.length);
       for (int i = 0; i < leafSlices.length - 1; ++i) {
-        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        final LeafSlice slice = leafSlices[i];
+        final int sliceIndex = i;
         final C collector = collectors.get(i);
+        final QueryProfile.SliceProfile sliceProfile = profile == null ? null : profile.addSlice();
         FutureTask<C> task = new FutureTask<>(() -> {
-          search(Arrays.asList(leaves), weight, collector);
+          searchSliceUnlessExited(slice, weight, collector, execution, sliceIndex, sliceProfile);
           return collector;
         });
-        executor.execute(task);
         topDocsFutures.add(task);
       }
-      final LeafReaderContext[] leaves = leafSlices[leafSlices.length - 1].leaves;
+      new BoundedSliceSubmitter(executor, topDocsFutures, maxConcurrentSlicesPerQuery - 1, execution).submitPending();
+      final LeafSlice slice = leafSlices[leafSlices.length - 1];
       final C collector = collectors.get(leafSlices.length - 1);
       // execute the last on the caller thread
-      search(Arrays.asList(leaves), weight, collector);
-      topDocsFutures.add(CompletableFuture.completedFuture(collector));
+      searchSliceUnlessExited(slice, weight, collector, execution, leafSlices.length - 1,
+          profile == null ? null : profile.addSlice());
+      // then help with the slices that no executor thread has picked up yet rather than waiting
+      // for them: FutureTask#run is a no-op for tasks that are already running or done
+      for (FutureTask<C> task : topDocsFutures) {
+        task.run();
+      }
       final List<C> collectedCollectors = new ArrayList<>();
       for (Future<C> future : topDocsFutures) {
         try {
@@ -570,10 +1064,157 @@ public class IndexSearcher {
           throw new RuntimeException(e);
         }
       }
-      return collectorManager.reduce(collectors);
+      sliceExecutionStats.recordSearch(execution.peakConcurrency.get());
+      if (profile == null) {
+        return collectorManager.reduce(collectors);
+      }
+      profile.setSearchNanos(System.nanoTime() - execution.startNanos);
+      return reduce(collectorManager, collectors, profile);
+    }
+  }
+
+  /** Rewrites the query and creates its weight, timing both phases if a profile is given. */
+  private Weight rewriteAndCreateWeight(Query query, ScoreMode scoreMode, QueryProfile profile) throws IOException {
+    if (profile == null) {
+      return createWeight(rewrite(query), scoreMode, 1);
+    }
+    long startNanos = System.nanoTime();
+    query = rewrite(query);
+    profile.setRewriteNanos(query, System.nanoTime() - startNanos);
+    startNanos = System.nanoTime();
+    final Weight weight = createWeight(query, scoreMode, 1);
+    profile.setCreateWeightNanos(System.nanoTime() - startNanos);
+    return weight;
+  }
+
+  private static <C extends Collector, T> T reduce(CollectorManager<C, T> collectorManager, List<C> collectors,
+      QueryProfile profile) throws IOException {
+    final long startNanos = System.nanoTime();
+    final T result = collectorManager.reduce(collectors);
+    profile.setReduceNanos(System.nanoTime() - startNanos);
+    return result;
+  }
+
+  /**
+  * Runs several queries in one pass over the index: {@code collectorManagers.get(i)} collects the hits of
+  * {@code queries.get(i)}, and the returned list holds the result of its {@link CollectorManager#reduce(Collection) reduce},
+  * in the same order.
+  * <p>
+  * This is meant for batches of related queries, for instance the facet counts, tabs and suggestions of
+  * one page. All queries are rewritten and their weights created up front. Then each slice is searched
+  * once: every leaf of the slice is scored for all queries, one after the other, on the same thread,
+  * rather than each query scheduling its own slices and walking all leaves again. Slices run on the
+  * {@link #getExecutor() executor} like in {@link #search(Query, CollectorManager)}.
+  * @throws IllegalArgumentException if the lists have different sizes
+  * @lucene.experimental
+  */
+  public List<Object> search(List<Query> queries, List<? extends CollectorManager<?, ?>> collectorManagers) throws IOException {
+    if (queries.size() != collectorManagers.size()) {
+      throw new IllegalArgumentException("queries and collectorManagers must have the same size, got "
+          + queries.size() + " and " + collectorManagers.size());
+    }
+    final int numQueries = queries.size();
+    final LeafSlice[] slices = hasConcurrentSlices()
+        ? leafSlices
+        : new LeafSlice[] { new LeafSlice(leafContexts.toArray(new LeafReaderContext[0])) };
+    // collectors[i][j] collects the hits of query i on slice j
+    final Collector[][] collectors = new Collector[numQueries][slices.length];
+    final Weight[] weights = new Weight[numQueries];
+    for (int i = 0; i < numQueries; ++i) {
+      ScoreMode scoreMode = null;
+      for (int j = 0; j < slices.length; ++j) {
+        final Collector collector = collectorManagers.get(i).newCollector();
+        collectors[i][j] = collector;
+        if (scoreMode == null) {
+          scoreMode = collector.scoreMode();
+        } else if (scoreMode != collector.scoreMode()) {
+          throw new IllegalStateException("CollectorManager does not always produce collectors with the same score mode");
+        }
+      }
+      weights[i] = createWeight(rewrite(queries.get(i)), scoreMode, 1);
+    }
+    partialResult = false;
+
+    if (slices.length == 1) {
+      searchSliceForAll(slices[0], weights, collectors, 0);
+    } else {
+      final SliceExecution execution = new SliceExecution(sliceExecutionStats, slices.length);
+      final List<FutureTask<Void>> tasks = new ArrayList<>(slices.length);
+      for (int j = 0; j < slices.length; ++j) {
+        final int sliceIndex = j;
+        tasks.add(new FutureTask<>(() -> {
+          final QueryTimeout queryTimeout = this.queryTimeout;
+          if (queryTimeout != null && queryTimeout.shouldExit()) {
+            partialResult = true;
+            sliceExecutionStats.recordSkippedSlice();
+            return null;
+          }
+          execution.sliceStarted(sliceIndex, null);
+          try {
+            searchSliceForAll(slices[sliceIndex], weights, collectors, sliceIndex);
+          } finally {
+            execution.sliceFinished();
+          }
+          return null;
+        }));
+      }
+      new BoundedSliceSubmitter(executor, tasks.subList(0, tasks.size() - 1), maxConcurrentSlicesPerQuery - 1, execution)
+          .submitPending();
+      // execute the last slice on the caller thread, then help with the others
+      tasks.get(tasks.size() - 1).run();
+      for (FutureTask<Void> task : tasks) {
+        task.run();
+      }
+      for (FutureTask<Void> task : tasks) {
+        try {
+          task.get();
+        } catch (InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      sliceExecutionStats.recordSearch(execution.peakConcurrency.get());
+    }
+
+    final List<Object> results = new ArrayList<>(numQueries);
+    for (int i = 0; i < numQueries; ++i) {
+      results.add(reduceUnchecked(collectorManagers.get(i), Arrays.asList(collectors[i])));
+    }
+    return results;
+  }
+
+  /**
+   * Searches every leaf of the given slice for all weights before moving to the next leaf.
+   * Each (leaf, weight) pair goes through {@link #search(List, Weight, Collector)} or
+   * {@link #search(LeafReaderContextPartition[], Weight, Collector)}.
+   */
+  private void searchSliceForAll(LeafSlice slice, Weight[] weights, Collector[][] collectors, int sliceIndex)
+      throws IOException {
+    final boolean partialLeaves = slice.hasPartialLeaves();
+    for (int leaf = 0; leaf < slice.leaves.length; ++leaf) {
+      for (int i = 0; i < weights.length; ++i) {
+        final QueryTimeout queryTimeout = this.queryTimeout;
+        if (queryTimeout != null && queryTimeout.shouldExit()) {
+          partialResult = true;
+          return;
+        }
+        if (partialLeaves) {
+          search(new LeafReaderContextPartition[] { slice.partitions[leaf] }, weights[i], collectors[i][sliceIndex]);
+        } else {
+          search(Collections.singletonList(slice.leaves[leaf]), weights[i], collectors[i][sliceIndex]);
+        }
+      }
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private static <C extends Collector, T> T reduceUnchecked(CollectorManager<C, T> collectorManager,
+      List<? extends Collector> collectors) throws IOException {
+    // the collectors were created by this collector manager
+    return collectorManager.reduce((List<C>) collectors);
+  }
+
   /**
    * Lower-level search API.
    * 
@@ -606,11 +1247,176 @@ public class IndexSearcher {
       }
       BulkScorer scorer = weight.bulkScorer(ctx);
       if (scorer != null) {
+        if (queryTimeout != null) {
+          scorer = new TimeLimitingBulkScorer(scorer, queryTimeout);
+        }
         try {
           scorer.score(leafCollector, ctx.reader().getLiveDocs());
         } catch (CollectionTerminatedException e) {
           // collection was terminated prematurely
           // continue with the following leaf
+        } catch (TimeLimitingBulkScorer.TimeExceededException e) {
+          partialResult = true;
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches a single slice, unless the query timeout says to exit, in which case the slice is
+   * skipped and the result is marked as partial. If a slice profile is given, the slice is profiled.
+   */
+  private void searchSliceUnlessExited(LeafSlice slice, Weight weight, Collector collector,
+      SliceExecution execution, int sliceIndex, QueryProfile.SliceProfile sliceProfile) throws IOException {
+    final QueryTimeout queryTimeout = this.queryTimeout;
+    if (queryTimeout != null && queryTimeout.shouldExit()) {
+      partialResult = true;
+      sliceExecutionStats.recordSkippedSlice();
+      return;
+    }
+    execution.sliceStarted(sliceIndex, sliceProfile);
+    try {
+      if (sliceProfile == null) {
+        search(slice, weight, collector);
+      } else {
+        search(slice, sliceProfile.wrap(weight), sliceProfile.wrap(collector));
+      }
+    } finally {
+      execution.sliceFinished();
+    }
+  }
+
+  /** Tracks the slices of one concurrent search, for {@link SliceExecutionStats}. */
+  private static final class SliceExecution {
+    final SliceExecutionStats stats;
+    final long startNanos = System.nanoTime();
+    final Thread callerThread = Thread.currentThread();
+    final AtomicInteger activeSlices = new AtomicInteger();
+    final AtomicInteger peakConcurrency = new AtomicInteger();
+    // when each slice was handed to the executor, published to the executor thread by Executor#execute
+    final long[] submitNanos;
+
+    SliceExecution(SliceExecutionStats stats, int numSlices) {
+      this.stats = stats;
+      this.submitNanos = new long[numSlices];
+    }
+
+    /** Records that the slice at the given index is about to be handed to the executor. */
+    void sliceSubmitted(int sliceIndex) {
+      submitNanos[sliceIndex] = System.nanoTime();
+    }
+
+    void sliceStarted(int sliceIndex, QueryProfile.SliceProfile sliceProfile) {
+      final boolean onCallerThread = Thread.currentThread() == callerThread;
+      // slices that the caller thread runs inline never waited in the executor's queue, even if
+      // they had been handed to the executor already
+      final long queueWaitNanos = onCallerThread ? 0 : System.nanoTime() - submitNanos[sliceIndex];
+      stats.recordSlice(queueWaitNanos, onCallerThread);
+      if (sliceProfile != null) {
+        sliceProfile.started(queueWaitNanos, onCallerThread);
+      }
+      peakConcurrency.accumulateAndGet(activeSlices.incrementAndGet(), Math::max);
+    }
+
+    void sliceFinished() {
+      activeSlices.decrementAndGet();
+    }
+  }
+
+  /**
+   * Hands the slice tasks of one search to an executor, with at most {@code maxTasks} of them
+   * queued or running there at a time: a semaphore permit is taken for each task that is handed
+   * over, and released, handing over the next pending task, when it completes.
+   */
+  private static final class BoundedSliceSubmitter {
+    private final Executor executor;
+    private final List<? extends Runnable> tasks;
+    private final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+    private final SliceExecution execution;
+
+    BoundedSliceSubmitter(Executor executor, List<? extends Runnable> tasks, int maxTasks, SliceExecution execution) {
+      this.executor = executor;
+      this.tasks = tasks;
+      for (int i = 0; i < tasks.size(); ++i) {
+        pending.add(i);
+      }
+      this.permits = new Semaphore(maxTasks);
+      this.execution = execution;
+    }
+
+    void submitPending() {
+      while (permits.tryAcquire()) {
+        final Integer index = pending.poll();
+        if (index == null) {
+          permits.release();
+          return;
+        }
+        final Runnable task = tasks.get(index);
+        execution.sliceSubmitted(index);
+        executor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            permits.release();
+            submitPending();
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Searches a single slice. Slices made of entire leaves go through
+   * {@link #search(List, Weight, Collector)} so that subclasses overriding it keep working.
+   */
+  private void search(LeafSlice slice, Weight weight, Collector collector) throws IOException {
+    if (slice.hasPartialLeaves()) {
+      search(slice.partitions, weight, collector);
+    } else {
+      search(Arrays.asList(slice.leaves), weight, collector);
+    }
+  }
+
+  /**
+   * Lower-level search API.
+   * <p>
+   * Same as {@link #search(List, Weight, Collector)}, but only the documents of each leaf that fall
+   * in the doc ID range of the given partition are scored, using
+   * {@link BulkScorer#score(LeafCollector, Bits, int, int)}.
+   *
+   * @param partitions the leaf partitions to execute the searches on
+   * @param weight to match documents
+   * @param collector to receive hits
+   * @throws BooleanQuery.TooManyClauses If a query would exceed {@link BooleanQuery#getMaxClauseCount()} clauses.
+   * @lucene.experimental
+   */
+  protected void search(LeafReaderContextPartition[] partitions, Weight weight, Collector collector)
+      throws IOException {
+    for (LeafReaderContextPartition partition : partitions) {
+      final LeafReaderContext ctx = partition.ctx;
+      final LeafCollector leafCollector;
+      try {
+        leafCollector = collector.getLeafCollector(ctx);
+      } catch (CollectionTerminatedException e) {
+        // there is no doc of interest in this reader context
+        // continue with the following partition
+        continue;
+      }
+      BulkScorer scorer = weight.bulkScorer(ctx);
+      if (scorer != null) {
+        if (queryTimeout != null) {
+          scorer = new TimeLimitingBulkScorer(scorer, queryTimeout);
+        }
+        try {
+          scorer.score(leafCollector, ctx.reader().getLiveDocs(), partition.minDocId, partition.maxDocId);
+        } catch (CollectionTerminatedException e) {
+          // collection was terminated prematurely
+          // continue with the following partition
+        } catch (TimeLimitingBulkScorer.TimeExceededException e) {
+          partialResult = true;
+          return;
         }
       }
     }
@@ -620,11 +1426,21 @@ public class IndexSearcher {
    * @throws BooleanQuery.TooManyClauses If a query would exceed {@link BooleanQuery#getMaxClauseCount()} clauses.
    */
   public Query rewrite(Query original) throws IOException {
+    final QueryRewriteCache queryRewriteCache = this.queryRewriteCache;
+    if (queryRewriteCache != null) {
+      final Query cached = queryRewriteCache.get(reader, original);
+      if (cached != null) {
+        return cached;
+      }
+    }
     Query query = original;
     for (Query rewrittenQuery = query.rewrite(reader); rewrittenQuery != query;
          rewrittenQuery = query.rewrite(reader)) {
       query = rewrittenQuery;
     }
+    if (queryRewriteCache != null) {
+      queryRewriteCache.put(reader, original, query);
+    }
     return query;
   }
 
@@ -690,9 +1506,88 @@ public class IndexSearcher {
      *
      *  @lucene.experimental */
     public final LeafReaderContext[] leaves;
+
+    /** The doc ID ranges of {@link #leaves} that are searched by this slice, in the same order.
+     *
+     *  @lucene.experimental */
+    public final LeafReaderContextPartition[] partitions;
     
     public LeafSlice(LeafReaderContext... leaves) {
       this.leaves = leaves;
+      this.partitions = new LeafReaderContextPartition[leaves.length];
+      for (int i = 0; i < leaves.length; i++) {
+        this.partitions[i] = LeafReaderContextPartition.createForEntireSegment(leaves[i]);
+      }
+    }
+
+    /** Creates a slice that searches the given leaf partitions.
+     *
+     *  @lucene.experimental */
+    public LeafSlice(LeafReaderContextPartition... partitions) {
+      this.partitions = partitions;
+      this.leaves = new LeafReaderContext[partitions.length];
+      for (int i = 0; i < partitions.length; i++) {
+        this.leaves[i] = partitions[i].ctx;
+      }
+    }
+
+    /** Returns true if at least one partition of this slice covers only part of its leaf. */
+    boolean hasPartialLeaves() {
+      for (LeafReaderContextPartition partition : partitions) {
+        if (partition.isEntireSegment() == false) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A range of doc IDs of a leaf, {@code [minDocId, maxDocId)}, that is searched as a unit of a
+   * {@link LeafSlice}. Several partitions of the same leaf can be searched concurrently, each with
+   * its own {@link Collector}.
+   *
+   * @lucene.experimental
+   */
+  public static final class LeafReaderContextPartition {
+
+    /** The leaf. */
+    public final LeafReaderContext ctx;
+    /** The first doc ID to search, inclusive. */
+    public final int minDocId;
+    /** The last doc ID to search, exclusive. {@link DocIdSetIterator#NO_MORE_DOCS} for the entire leaf. */
+    public final int maxDocId;
+
+    private LeafReaderContextPartition(LeafReaderContext ctx, int minDocId, int maxDocId) {
+      this.ctx = Objects.requireNonNull(ctx);
+      this.minDocId = minDocId;
+      this.maxDocId = maxDocId;
+    }
+
+    /** Creates a partition that covers all documents of the given leaf. */
+    public static LeafReaderContextPartition createForEntireSegment(LeafReaderContext ctx) {
+      return new LeafReaderContextPartition(ctx, 0, DocIdSetIterator.NO_MORE_DOCS);
+    }
+
+    /** Creates a partition that covers doc IDs {@code [minDocId, maxDocId)} of the given leaf. */
+    public static LeafReaderContextPartition createFromAndTo(LeafReaderContext ctx, int minDocId, int maxDocId) {
+      if (minDocId < 0 || minDocId >= maxDocId) {
+        throw new IllegalArgumentException("Illegal doc ID range: minDocId=" + minDocId + " maxDocId=" + maxDocId);
+      }
+      if (maxDocId > ctx.reader().maxDoc()) {
+        throw new IllegalArgumentException("maxDocId=" + maxDocId + " exceeds maxDoc=" + ctx.reader().maxDoc());
+      }
+      return new LeafReaderContextPartition(ctx, minDocId, maxDocId);
+    }
+
+    /** Returns true if this partition covers all documents of its leaf. */
+    public boolean isEntireSegment() {
+      return minDocId == 0 && (maxDocId == DocIdSetIterator.NO_MORE_DOCS || maxDocId == ctx.reader().maxDoc());
+    }
+
+    @Override
+    public String toString() {
+      return "LeafReaderContextPartition(ord=" + ctx.ord + ", minDocId=" + minDocId + ", maxDocId=" + maxDocId + ")";
     }
   }
 
@@ -701,6 +1596,61 @@ public class IndexSearcher {
     return "IndexSearcher(" + reader + "; executor=" + executor + ")";
   }
 
+  /**
+   * Returns an executor that runs each task in a new virtual thread, for use with
+   * {@link #IndexSearcher(IndexReader, Executor)}. Slices that block on I/O, for instance on cold
+   * memory-mapped pages, then park a cheap virtual thread instead of pinning a pool thread. Combine it
+   * with {@link #setMaxConcurrentSlicesPerQuery(int)} so that a single heavy query cannot occupy all
+   * carrier threads.
+   *
+   * @throws UnsupportedOperationException if the Java runtime does not support virtual threads (Java 21 or later is required)
+   * @lucene.experimental
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      // looked up reflectively so that Lucene still runs on Java versions without virtual threads
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on Java "
+          + System.getProperty("java.specification.version"), e);
+    } catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Limits how many slices of a single {@link #search(Query, CollectorManager)} call run at the same time,
+   * including the calling thread. At most {@code maxConcurrentSlicesPerQuery - 1} slices of a query are handed
+   * to the executor at a time, a new one being handed over each time one completes, while the calling thread
+   * searches the others. The default is unbounded. A value of {@code 1} searches all slices on the calling thread.
+   * @lucene.experimental
+   */
+  public void setMaxConcurrentSlicesPerQuery(int maxConcurrentSlicesPerQuery) {
+    if (maxConcurrentSlicesPerQuery < 1) {
+      throw new IllegalArgumentException("maxConcurrentSlicesPerQuery must be >= 1, got " + maxConcurrentSlicesPerQuery);
+    }
+    this.maxConcurrentSlicesPerQuery = maxConcurrentSlicesPerQuery;
+  }
+
+  /**
+   * Returns the limit set through {@link #setMaxConcurrentSlicesPerQuery(int)}.
+   * @lucene.experimental
+   */
+  public int getMaxConcurrentSlicesPerQuery() {
+    return maxConcurrentSlicesPerQuery;
+  }
+
+  /**
+   * Returns cumulative statistics about the execution of the slices of concurrent searches, such as
+   * the time slices waited for a thread and how many slices of a query ran at the same time.
+   * @lucene.experimental
+   */
+  public SliceExecutionStats getSliceExecutionStats() {
+    return sliceExecutionStats;
+  }
+
   /**
    * Returns {@link TermStatistics} for a term, or {@code null} if the term does not exist.
    * @deprecated in favor of {@link #termStatistics(Term, int, long)}.
@@ -733,11 +1683,26 @@ public class IndexSearcher {
   /**
    * Returns {@link CollectionStatistics} for a field, or {@code null} if the field does not exist (has no indexed terms)
    * 
+   * The statistics are aggregated over all leaves the first time a field is requested, and cached for the
+   * lifetime of this searcher since its reader can't change. This method is safe to call from concurrent queries.
    * This can be overridden for example, to return a field's statistics across a distributed collection.
    * @lucene.experimental
    */
   public CollectionStatistics collectionStatistics(String field) throws IOException {
     assert field != null;
+    Optional<CollectionStatistics> statistics = collectionStatisticsCache.get(field);
+    if (statistics == null) {
+      // concurrent queries may compute the same statistics, but they are equal
+      statistics = Optional.ofNullable(computeCollectionStatistics(field));
+      if (collectionStatisticsCache.size() < MAX_CACHED_COLLECTION_STATISTICS) {
+        collectionStatisticsCache.putIfAbsent(field, statistics);
+      }
+    }
+    return statistics.orElse(null);
+  }
+
+  /** Aggregates the statistics of a field over all leaves, or returns {@code null} if the field has no indexed terms. */
+  private CollectionStatistics computeCollectionStatistics(String field) throws IOException {
     long docCount = 0;
     long sumTotalTermFreq = 0;
     long sumDocFreq = 0;
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.QueryTimeout;
+
+/**
+ * A {@link QueryTimeout} that combines an optional deadline with a cancellation flag that can be
+ * set from any thread, for instance when the client that issued a query has gone away.
+ * <p>
+ * Once passed to {@link IndexSearcher#setTimeout(QueryTimeout)}, the searcher stops starting new
+ * slices and stops scoring the current ones shortly after the deadline is reached or
+ * {@link #cancel()} is called. The search then returns the hits that were collected so far and
+ * {@link IndexSearcher#timedOut()} returns {@code true}.
+ *
+ * @lucene.experimental
+ */
+public final class QueryCancellation implements QueryTimeout {
+
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  private final long deadlineNanos;
+  private volatile boolean cancelled;
+
+  private QueryCancellation(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /** Creates a cancellation token that only exits when {@link #cancel()} is called. */
+  public static QueryCancellation create() {
+    return new QueryCancellation(NO_DEADLINE);
+  }
+
+  /** Creates a cancellation token that also exits once the given time budget, starting now, is spent. */
+  public static QueryCancellation withTimeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout must be >= 0, got " + timeout);
+    }
+    final long timeoutNanos = unit.toNanos(timeout);
+    if (timeoutNanos >= Long.MAX_VALUE / 2) {
+      // too far away to be represented as a point in System.nanoTime()
+      return create();
+    }
+    return new QueryCancellation(System.nanoTime() + timeoutNanos);
+  }
+
+  /** Requests that the searches using this token stop as soon as possible. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** Returns true if {@link #cancel()} has been called. */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /** Returns true if this token has a deadline and it has been reached. */
+  public boolean isExpired() {
+    return deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  @Override
+  public boolean shouldExit() {
+    return cancelled || isExpired();
+  }
+
+  @Override
+  public boolean isTimeoutEnabled() {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryCancellation(cancelled=" + cancelled + ", expired=" + isExpired() + ")";
+  }
+}
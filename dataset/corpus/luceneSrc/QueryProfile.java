@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Bits;
+
+/**
+ * Timings and counters of a single search, recorded when it is passed to
+ * {@link IndexSearcher#search(Query, CollectorManager, QueryProfile)}.
+ * <p>
+ * The profile is a tree: the top level holds the time spent rewriting the query, creating its
+ * {@link Weight}, searching and reducing the collectors. It has one {@link SliceProfile} per
+ * {@link IndexSearcher.LeafSlice}, which records how long the slice waited for a thread, and each slice
+ * has one {@link LeafProfile} per leaf it searched, which records the time spent creating the
+ * {@link BulkScorer} and scoring, the number of calls to {@link LeafCollector#collect(int)} and
+ * whether collection was terminated early with a {@link CollectionTerminatedException}.
+ * All times are in nanoseconds.
+ * <p>
+ * Searches that are not given a profile are not instrumented at all. When a profile is given, the
+ * weight and collectors are wrapped, which adds a counter increment per collected document.
+ * <p>
+ * A profile may only be used for one search, and should only be read once the search has returned.
+ *
+ * @lucene.experimental
+ */
+public final class QueryProfile {
+
+  private boolean used;
+  private Query query;
+  private long rewriteNanos;
+  private long createWeightNanos;
+  private long searchNanos;
+  private long reduceNanos;
+  private final List<SliceProfile> slices = new ArrayList<>();
+
+  /** Creates an empty profile, to be passed to a search. */
+  public QueryProfile() {}
+
+  /** Called by the searcher when the search starts, fails if this profile was already used. */
+  void start() {
+    if (used) {
+      throw new IllegalStateException("A QueryProfile can only be used for one search");
+    }
+    used = true;
+  }
+
+  void setRewriteNanos(Query rewritten, long nanos) {
+    this.query = rewritten;
+    this.rewriteNanos = nanos;
+  }
+
+  void setCreateWeightNanos(long nanos) {
+    this.createWeightNanos = nanos;
+  }
+
+  void setSearchNanos(long nanos) {
+    this.searchNanos = nanos;
+  }
+
+  void setReduceNanos(long nanos) {
+    this.reduceNanos = nanos;
+  }
+
+  SliceProfile addSlice() {
+    final SliceProfile slice = new SliceProfile(slices.size());
+    slices.add(slice);
+    return slice;
+  }
+
+  /** Returns the rewritten query that was executed, or {@code null} if the search did not start. */
+  public Query getQuery() {
+    return query;
+  }
+
+  /** Returns the time spent in {@link IndexSearcher#rewrite(Query)}. */
+  public long getRewriteNanos() {
+    return rewriteNanos;
+  }
+
+  /** Returns the time spent in {@link IndexSearcher#createWeight(Query, ScoreMode, float)}. */
+  public long getCreateWeightNanos() {
+    return createWeightNanos;
+  }
+
+  /** Returns the wall-clock time from the start of the first slice submission to the end of the last slice. */
+  public long getSearchNanos() {
+    return searchNanos;
+  }
+
+  /** Returns the time spent in {@link CollectorManager#reduce(java.util.Collection)}. */
+  public long getReduceNanos() {
+    return reduceNanos;
+  }
+
+  /** Returns the sum of all phases. */
+  public long getTotalNanos() {
+    return rewriteNanos + createWeightNanos + searchNanos + reduceNanos;
+  }
+
+  /** Returns the slices of the search, in the order of {@link IndexSearcher#getSlices()}. */
+  public List<SliceProfile> getSlices() {
+    return Collections.unmodifiableList(slices);
+  }
+
+  /** Returns the total number of calls to {@link LeafCollector#collect(int)} across all slices. */
+  public long getCollectCount() {
+    long count = 0;
+    for (SliceProfile slice : slices) {
+      count += slice.getCollectCount();
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("QueryProfile(query=").append(query)
+        .append(", rewrite=").append(toMicros(rewriteNanos))
+        .append(", createWeight=").append(toMicros(createWeightNanos))
+        .append(", search=").append(toMicros(searchNanos))
+        .append(", reduce=").append(toMicros(reduceNanos))
+        .append(", collected=").append(getCollectCount()).append(")");
+    for (SliceProfile slice : slices) {
+      sb.append("\n  ").append(slice);
+      for (LeafProfile leaf : slice.leaves) {
+        sb.append("\n    ").append(leaf);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+  }
+
+  /** Timings and counters of the search of one {@link IndexSearcher.LeafSlice}. */
+  public static final class SliceProfile {
+
+    private final int index;
+    private boolean started;
+    private boolean callerThread;
+    private long queueWaitNanos;
+    private final List<LeafProfile> leaves = new ArrayList<>();
+    private LeafProfile current;
+
+    SliceProfile(int index) {
+      this.index = index;
+    }
+
+    /**
+     * Records that the slice started on the current thread, {@code queueWaitNanos} after it was
+     * handed to the executor.
+     */
+    void started(long queueWaitNanos, boolean callerThread) {
+      this.started = true;
+      this.queueWaitNanos = queueWaitNanos;
+      this.callerThread = callerThread;
+    }
+
+    /** Returns the index of the slice in {@link IndexSearcher#getSlices()}. */
+    public int getIndex() {
+      return index;
+    }
+
+    /** Returns false if the slice was skipped because the query timeout had exited. */
+    public boolean isStarted() {
+      return started;
+    }
+
+    /** Returns whether the slice was searched on the thread that called the search method. */
+    public boolean isCallerThread() {
+      return callerThread;
+    }
+
+    /**
+     * Returns how long the slice waited in the executor's queue before its search started, or 0 if it
+     * ran on the thread that called the search method.
+     */
+    public long getQueueWaitNanos() {
+      return queueWaitNanos;
+    }
+
+    /** Returns the leaves that were searched, in order. */
+    public List<LeafProfile> getLeaves() {
+      return Collections.unmodifiableList(leaves);
+    }
+
+    /** Returns the number of calls to {@link LeafCollector#collect(int)} for this slice. */
+    public long getCollectCount() {
+      long count = 0;
+      for (LeafProfile leaf : leaves) {
+        count += leaf.collectCount;
+      }
+      return count;
+    }
+
+    /** Returns the time spent creating bulk scorers and scoring the leaves of this slice. */
+    public long getTotalNanos() {
+      long nanos = 0;
+      for (LeafProfile leaf : leaves) {
+        nanos += leaf.bulkScorerNanos + leaf.scoreNanos;
+      }
+      return nanos;
+    }
+
+    /** Wraps the weight of the search so that bulk scorer creation and scoring are timed. */
+    Weight wrap(Weight weight) {
+      return new ProfilingWeight(weight, this);
+    }
+
+    /** Wraps the collector of this slice so that leaves and collected documents are recorded. */
+    Collector wrap(Collector collector) {
+      return new ProfilingCollector(collector, this);
+    }
+
+    private LeafProfile startLeaf(LeafReaderContext context) {
+      current = new LeafProfile(context.ord, context.docBase);
+      leaves.add(current);
+      return current;
+    }
+
+    private LeafProfile currentLeaf(LeafReaderContext context) {
+      if (current == null || current.ord != context.ord) {
+        // the collector was not asked for this leaf, which happens with custom search loops
+        return startLeaf(context);
+      }
+      return current;
+    }
+
+    @Override
+    public String toString() {
+      return "SliceProfile(index=" + index + ", started=" + started + ", callerThread=" + callerThread
+          + ", queueWait=" + toMicros(queueWaitNanos) + ", leaves=" + leaves.size()
+          + ", collected=" + getCollectCount() + ")";
+    }
+  }
+
+  /** Timings and counters of the search of one leaf, or of a doc ID range of a leaf. */
+  public static final class LeafProfile {
+
+    private final int ord;
+    private final int docBase;
+    private long bulkScorerNanos;
+    private long scoreNanos;
+    private long collectCount;
+    private boolean earlyTerminated;
+    private boolean matched;
+
+    LeafProfile(int ord, int docBase) {
+      this.ord = ord;
+      this.docBase = docBase;
+    }
+
+    /** Returns the {@link LeafReaderContext#ord ordinal} of the leaf. */
+    public int getOrd() {
+      return ord;
+    }
+
+    /** Returns the {@link LeafReaderContext#docBase doc base} of the leaf. */
+    public int getDocBase() {
+      return docBase;
+    }
+
+    /** Returns the time spent in {@link Weight#bulkScorer(LeafReaderContext)}. */
+    public long getBulkScorerNanos() {
+      return bulkScorerNanos;
+    }
+
+    /** Returns the time spent in {@link BulkScorer#score(LeafCollector, Bits, int, int)}, including collection. */
+    public long getScoreNanos() {
+      return scoreNanos;
+    }
+
+    /** Returns the number of calls to {@link LeafCollector#collect(int)}. */
+    public long getCollectCount() {
+      return collectCount;
+    }
+
+    /** Returns whether the collector terminated collection of this leaf early with a {@link CollectionTerminatedException}. */
+    public boolean isEarlyTerminated() {
+      return earlyTerminated;
+    }
+
+    /** Returns whether the weight had a bulk scorer for this leaf, ie. whether the query could match. */
+    public boolean hasMatches() {
+      return matched;
+    }
+
+    @Override
+    public String toString() {
+      return "LeafProfile(ord=" + ord + ", docBase=" + docBase + ", bulkScorer=" + toMicros(bulkScorerNanos)
+          + ", score=" + toMicros(scoreNanos) + ", collected=" + collectCount
+          + ", earlyTerminated=" + earlyTerminated + ")";
+    }
+  }
+
+  private static final class ProfilingWeight extends FilterWeight {
+
+    private final SliceProfile slice;
+
+    ProfilingWeight(Weight in, SliceProfile slice) {
+      super(in);
+      this.slice = slice;
+    }
+
+    @Override
+    public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+      final LeafProfile leaf = slice.currentLeaf(context);
+      final long start = System.nanoTime();
+      final BulkScorer bulkScorer = in.bulkScorer(context);
+      leaf.bulkScorerNanos += System.nanoTime() - start;
+      if (bulkScorer == null) {
+        return null;
+      }
+      leaf.matched = true;
+      return new ProfilingBulkScorer(bulkScorer, leaf);
+    }
+  }
+
+  private static final class ProfilingBulkScorer extends BulkScorer {
+
+    private final BulkScorer in;
+    private final LeafProfile leaf;
+
+    ProfilingBulkScorer(BulkScorer in, LeafProfile leaf) {
+      this.in = in;
+      this.leaf = leaf;
+    }
+
+    @Override
+    public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+      final long start = System.nanoTime();
+      try {
+        return in.score(collector, acceptDocs, min, max);
+      } finally {
+        leaf.scoreNanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public long cost() {
+      return in.cost();
+    }
+  }
+
+  private static final class ProfilingCollector extends FilterCollector {
+
+    private final SliceProfile slice;
+
+    ProfilingCollector(Collector in, SliceProfile slice) {
+      super(in);
+      this.slice = slice;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+      final LeafProfile leaf = slice.startLeaf(context);
+      final LeafCollector leafCollector;
+      try {
+        leafCollector = super.getLeafCollector(context);
+      } catch (CollectionTerminatedException e) {
+        leaf.earlyTerminated = true;
+        throw e;
+      }
+      return new FilterLeafCollector(leafCollector) {
+        @Override
+        public void collect(int doc) throws IOException {
+          leaf.collectCount++;
+          try {
+            super.collect(doc);
+          } catch (CollectionTerminatedException e) {
+            leaf.earlyTerminated = true;
+            throw e;
+          }
+        }
+      };
+    }
+  }
+}
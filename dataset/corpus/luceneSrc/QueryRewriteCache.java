@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * A bounded cache of the results of {@link IndexSearcher#rewrite(Query)}, for queries such as
+ * prefix, wildcard or fuzzy queries that expand terms against the terms dictionary each time they
+ * are rewritten. Only queries whose rewritten form differs from the original are cached, and the
+ * least recently used entry of a reader is evicted when it holds {@code maxSize} entries.
+ * <p>
+ * Rewritten queries depend on the index, so entries are scoped to the
+ * {@link IndexReader#getReaderCacheHelper() cache key} of the reader they were rewritten against.
+ * Searchers of different readers, for instance overlapping searchers of a {@code SearcherManager}
+ * while a reopened reader is being warmed, can share a cache without invalidating each other's
+ * entries. The entries of a reader are dropped when it is closed. Readers without a cache helper are
+ * never cached. Queries that are known to never rewrite, such as term queries, bypass the cache and
+ * are not counted as misses.
+ * <p>
+ * <b>NOTE</b>: queries must not be modified after they have been passed to a searcher that uses
+ * this cache. This class is thread-safe: lookups against different readers do not contend.
+ *
+ * @see IndexSearcher#setQueryRewriteCache(QueryRewriteCache)
+ * @lucene.experimental
+ */
+public final class QueryRewriteCache {
+
+  // exact classes whose rewrite(IndexReader) returns the query itself, subclasses may override it
+  private static final Set<Class<? extends Query>> NON_REWRITING_QUERIES = Collections.newSetFromMap(new IdentityHashMap<>());
+  static {
+    NON_REWRITING_QUERIES.addAll(Arrays.asList(
+        TermQuery.class,
+        MatchAllDocsQuery.class,
+        MatchNoDocsQuery.class,
+        DocValuesFieldExistsQuery.class,
+        NormsFieldExistsQuery.class));
+  }
+
+  private final int maxSize;
+  // the rewritten queries of each open reader, in access order
+  private final Map<IndexReader.CacheKey, LinkedHashMap<Query, Query>> readerCaches = new ConcurrentHashMap<>();
+  // a single instance, so that registering it again on a reader is a no-op
+  private final IndexReader.ClosedListener closedListener = this::onClose;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder invalidationCount = new LongAdder();
+
+  /** Creates a cache that holds at most {@code maxSize} rewritten queries per reader. */
+  public QueryRewriteCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be > 0, got " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /** Whether rewriting {@code query} may produce a different query, and is therefore worth caching. */
+  static boolean mayRewrite(Query query) {
+    return NON_REWRITING_QUERIES.contains(query.getClass()) == false;
+  }
+
+  /**
+   * Returns the cached rewritten form of {@code query} against {@code reader}, or {@code null} if it is
+   * not cached.
+   */
+  Query get(IndexReader reader, Query query) {
+    if (mayRewrite(query) == false) {
+      return null;
+    }
+    final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+    if (cacheHelper == null) {
+      return null;
+    }
+    final LinkedHashMap<Query, Query> readerCache = readerCaches.get(cacheHelper.getKey());
+    Query rewritten = null;
+    if (readerCache != null) {
+      synchronized (readerCache) {
+        rewritten = readerCache.get(query);
+      }
+    }
+    if (rewritten == null) {
+      missCount.increment();
+    } else {
+      hitCount.increment();
+    }
+    return rewritten;
+  }
+
+  /** Caches the rewritten form of {@code query} against {@code reader}. */
+  void put(IndexReader reader, Query query, Query rewritten) {
+    Objects.requireNonNull(query);
+    Objects.requireNonNull(rewritten);
+    if (rewritten == query) {
+      // nothing to save
+      return;
+    }
+    final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+    if (cacheHelper == null) {
+      return;
+    }
+    final LinkedHashMap<Query, Query> readerCache = readerCaches.computeIfAbsent(cacheHelper.getKey(), key -> {
+      // don't keep rewritten queries of closed readers around
+      cacheHelper.addClosedListener(closedListener);
+      return newReaderCache();
+    });
+    synchronized (readerCache) {
+      readerCache.put(query, rewritten);
+    }
+  }
+
+  private LinkedHashMap<Query, Query> newReaderCache() {
+    return new LinkedHashMap<Query, Query>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Query, Query> eldest) {
+        if (size() > maxSize) {
+          evictionCount.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  private void onClose(IndexReader.CacheKey key) {
+    final LinkedHashMap<Query, Query> readerCache = readerCaches.remove(key);
+    if (readerCache != null) {
+      synchronized (readerCache) {
+        if (readerCache.isEmpty() == false) {
+          invalidationCount.increment();
+        }
+      }
+    }
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    readerCaches.clear();
+  }
+
+  /** Returns the maximum number of cached queries per reader. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns the number of cached queries, across all readers. */
+  public int getSize() {
+    int size = 0;
+    for (LinkedHashMap<Query, Query> readerCache : readerCaches.values()) {
+      synchronized (readerCache) {
+        size += readerCache.size();
+      }
+    }
+    return size;
+  }
+
+  /** Returns the number of times a rewritten query was found in the cache. */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** Returns the number of times a query that may rewrite had to be rewritten. */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /** Returns the number of entries that were evicted because the cache of their reader was full. */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /** Returns the number of times the entries of a reader were dropped because it was closed. */
+  public long getInvalidationCount() {
+    return invalidationCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "QueryRewriteCache(size=" + getSize() + ", readers=" + readerCaches.size() + ", maxSize=" + maxSize
+        + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount()
+        + ", invalidations=" + getInvalidationCount() + ")";
+  }
+}
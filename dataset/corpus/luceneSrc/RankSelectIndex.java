@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util;
+
+/**
+ * A rank/select index over a bitset stored as an array of longs, in the format used by {@link BitUtil}.
+ * <p>
+ * The index stores the number of bits set before each 512-bit superblock, so that
+ * {@link #rank(int) rank} only counts the bits of at most 8 longs, and the superblock of every 512th
+ * set bit, so that {@link #select(int) select} only binary searches the superblocks between two
+ * samples, which stays logarithmic on sparse bitsets where samples are far apart.
+ * {@link #nextBitSet(int)} and {@link #previousBitSet(int)} first look at the long that holds the
+ * given bit, and otherwise use a rank followed by a select, so they do not scan long runs of clear bits.
+ * The index takes about 1/16th of the memory of the bitset.
+ * <p>
+ * The index is a snapshot: the bits must not be modified after it has been built.
+ *
+ * @lucene.internal
+ */
+public final class RankSelectIndex implements Accountable {
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RankSelectIndex.class);
+
+  /** The number of longs per superblock, 512 bits. */
+  static final int LONGS_PER_SUPERBLOCK = 8;
+  private static final int SUPERBLOCK_SHIFT = 3;
+  /** One set bit out of this many has its superblock sampled for select. */
+  static final int SELECT_SAMPLING = 512;
+  private static final int SELECT_SAMPLING_SHIFT = 9;
+
+  private final long[] bits;
+  private final int numLongs;
+  // ranks[i] is the number of bits set before superblock i, ranks[numSuperblocks] is the cardinality
+  private final int[] ranks;
+  // selectSamples[i] is the superblock that holds the (i * SELECT_SAMPLING)-th set bit
+  private final int[] selectSamples;
+
+  /**
+   * Builds an index over the first {@code numLongs} longs of {@code bits}.
+   *
+   * @param bits     The bits stored in an array of long for efficiency.
+   * @param numLongs The number of longs in {@code bits} to consider.
+   */
+  public RankSelectIndex(long[] bits, int numLongs) {
+    if (numLongs < 0 || numLongs > bits.length) {
+      throw new IllegalArgumentException("numLongs must be >= 0 and <= bits.length=" + bits.length + ", got " + numLongs);
+    }
+    if ((long) numLongs * Long.SIZE > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many bits: " + (long) numLongs * Long.SIZE);
+    }
+    this.bits = bits;
+    this.numLongs = numLongs;
+    final int numSuperblocks = (numLongs + LONGS_PER_SUPERBLOCK - 1) >>> SUPERBLOCK_SHIFT;
+    ranks = new int[numSuperblocks + 1];
+    int rank = 0;
+    for (int sb = 0; sb < numSuperblocks; ++sb) {
+      ranks[sb] = rank;
+      final int start = sb << SUPERBLOCK_SHIFT;
+      rank += (int) BitUtil.pop_array(bits, start, Math.min(LONGS_PER_SUPERBLOCK, numLongs - start));
+    }
+    ranks[numSuperblocks] = rank;
+
+    selectSamples = new int[(rank + SELECT_SAMPLING - 1) >>> SELECT_SAMPLING_SHIFT];
+    int sample = 0;
+    for (int sb = 0; sb < numSuperblocks; ++sb) {
+      while (sample < selectSamples.length && (sample << SELECT_SAMPLING_SHIFT) < ranks[sb + 1]) {
+        selectSamples[sample++] = sb;
+      }
+    }
+  }
+
+  /** Returns the number of bits set. */
+  public int cardinality() {
+    return ranks[ranks.length - 1];
+  }
+
+  /** Returns the number of bits that the index covers. */
+  public int length() {
+    return numLongs * Long.SIZE;
+  }
+
+  /**
+   * Returns the number of bits set before the given bit zero-based index, exclusive.
+   * This is equivalent to {@link BitUtil#countBitsUpTo(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index, exclusive.
+   *			It must be greater than or equal to 0, and less than or equal to {@link #length()}.
+   */
+  public int rank(int bitIndex) {
+    assert bitIndex >= 0 && bitIndex <= length() : "bitIndex=" + bitIndex + " length=" + length();
+    final int longIndex = bitIndex >>> 6;
+    final int sb = longIndex >>> SUPERBLOCK_SHIFT;
+    int rank = ranks[sb];
+    for (int i = sb << SUPERBLOCK_SHIFT; i < longIndex; ++i) {
+      rank += Long.bitCount(bits[i]);
+    }
+    if (longIndex < numLongs) {
+      rank += Long.bitCount(bits[longIndex] & ((1L << bitIndex) - 1L)); // Shifts are mod 64.
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the index of the set bit that has {@code rank} set bits before it.
+   *
+   * @param rank The zero-based rank of the set bit.
+   *			It must be greater than or equal to 0, and strictly less than {@link #cardinality()}.
+   */
+  public int select(int rank) {
+    assert rank >= 0 && rank < cardinality() : "rank=" + rank + " cardinality=" + cardinality();
+    // find the superblock: it is between the superblocks of the samples before and after the bit, and
+    // it is the last one that has fewer than rank bits set before it
+    final int sample = rank >>> SELECT_SAMPLING_SHIFT;
+    int sb = selectSamples[sample];
+    int maxSb = sample + 1 < selectSamples.length ? selectSamples[sample + 1] : ranks.length - 2;
+    while (sb < maxSb) {
+      final int mid = (sb + maxSb + 1) >>> 1;
+      if (ranks[mid] <= rank) {
+        sb = mid;
+      } else {
+        maxSb = mid - 1;
+      }
+    }
+    int remaining = rank - ranks[sb];
+    int longIndex = sb << SUPERBLOCK_SHIFT;
+    for (;;) {
+      final long word = bits[longIndex];
+      final int bitCount = Long.bitCount(word);
+      if (remaining < bitCount) {
+        return (longIndex << 6) + selectInWord(word, remaining);
+      }
+      remaining -= bitCount;
+      ++longIndex;
+    }
+  }
+
+  /** Returns the index of the set bit of {@code word} that has {@code rank} set bits before it. */
+  static int selectInWord(long word, int rank) {
+    assert rank >= 0 && rank < Long.bitCount(word) : "rank=" + rank + " word=" + word;
+    int offset = 0;
+    // narrow down to the byte that holds the bit, then walk its bits
+    for (int shift = 32; shift >= 8; shift >>>= 1) {
+      final int lowCount = Long.bitCount(word & ((1L << shift) - 1));
+      if (rank >= lowCount) {
+        rank -= lowCount;
+        word >>>= shift;
+        offset += shift;
+      }
+    }
+    for (; rank > 0; --rank) {
+      word &= word - 1;
+    }
+    return offset + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Returns the index of the next bit set following the given bit zero-based index, or -1 if none.
+   * This is equivalent to {@link BitUtil#nextBitSet(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index.
+   *				It must be greater than or equal to -1, and strictly less than {@link #length()}.
+   */
+  public int nextBitSet(int bitIndex) {
+    assert bitIndex >= -1 && bitIndex < length() : "bitIndex=" + bitIndex + " length=" + length();
+    final int next = bitIndex + 1;
+    if (next == length()) {
+      return -1;
+    }
+    // fast path: the next bit set is in the same long
+    final long word = bits[next >>> 6] >>> next; // Shifts are mod 64.
+    if (word != 0) {
+      return next + Long.numberOfTrailingZeros(word);
+    }
+    final int rank = rank(next);
+    return rank == cardinality() ? -1 : select(rank);
+  }
+
+  /**
+   * Returns the index of the previous bit set preceding the given bit zero-based index, or -1 if none.
+   * This is equivalent to {@link BitUtil#previousBitSet(long[], int, int)}.
+   *
+   * @param bitIndex The bit zero-based index.
+   *				It must be greater than or equal to 0, and less than or equal to {@link #length()}.
+   */
+  public int previousBitSet(int bitIndex) {
+    assert bitIndex >= 0 && bitIndex <= length() : "bitIndex=" + bitIndex + " length=" + length();
+    if (bitIndex == 0) {
+      return -1;
+    }
+    // fast path: the previous bit set is in the same long
+    final int prev = bitIndex - 1;
+    final long word = bits[prev >>> 6] << (63 - prev); // Shifts are mod 64.
+    if (word != 0) {
+      return prev - Long.numberOfLeadingZeros(word);
+    }
+    final int rank = rank(bitIndex);
+    return rank == 0 ? -1 : select(rank - 1);
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    // the bits are not owned by the index
+    return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(ranks) + RamUsageEstimator.sizeOf(selectSamples);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative statistics about how the slices of concurrent searches were executed by an
+ * {@link IndexSearcher}: how many slices ran on the executor and on the calling thread, how long
+ * slices waited in the executor's queue before they started, and how many slices of a single query ran at the same time.
+ * Only searches that use the searcher's {@link java.util.concurrent.Executor} are recorded.
+ * <p>
+ * This class is thread-safe. Recording costs a couple of atomic updates per slice.
+ *
+ * @see IndexSearcher#getSliceExecutionStats()
+ * @lucene.experimental
+ */
+public final class SliceExecutionStats {
+
+  private final LongAdder searchCount = new LongAdder();
+  private final LongAdder sliceCount = new LongAdder();
+  private final LongAdder callerSliceCount = new LongAdder();
+  private final LongAdder skippedSliceCount = new LongAdder();
+  private final LongAdder totalQueueWaitNanos = new LongAdder();
+  private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+  private final LongAdder totalPeakConcurrency = new LongAdder();
+  private final AtomicLong maxPeakConcurrency = new AtomicLong();
+
+  SliceExecutionStats() {}
+
+  /**
+   * Records a slice that started {@code queueWaitNanos} after it was handed to the executor. Slices
+   * run on the calling thread are recorded with a queue wait of 0.
+   */
+  void recordSlice(long queueWaitNanos, boolean onCallerThread) {
+    sliceCount.increment();
+    if (onCallerThread) {
+      callerSliceCount.increment();
+    }
+    totalQueueWaitNanos.add(queueWaitNanos);
+    maxQueueWaitNanos.accumulateAndGet(queueWaitNanos, Math::max);
+  }
+
+  /** Records a slice that was not searched because the query timeout had exited. */
+  void recordSkippedSlice() {
+    skippedSliceCount.increment();
+  }
+
+  /** Records a completed search and the largest number of its slices that ran at the same time. */
+  void recordSearch(int peakConcurrency) {
+    searchCount.increment();
+    totalPeakConcurrency.add(peakConcurrency);
+    maxPeakConcurrency.accumulateAndGet(peakConcurrency, Math::max);
+  }
+
+  /** Returns the number of concurrent searches. */
+  public long getSearchCount() {
+    return searchCount.sum();
+  }
+
+  /** Returns the number of slices that were searched. */
+  public long getSliceCount() {
+    return sliceCount.sum();
+  }
+
+  /** Returns the number of slices that were searched by the thread that called the search method. */
+  public long getCallerSliceCount() {
+    return callerSliceCount.sum();
+  }
+
+  /** Returns the number of slices that were skipped because the query timeout had exited. */
+  public long getSkippedSliceCount() {
+    return skippedSliceCount.sum();
+  }
+
+  /**
+   * Returns the average time between handing a slice to the executor and the start of its search.
+   * Slices that ran on the calling thread count as 0.
+   */
+  public long getAverageQueueWait(TimeUnit unit) {
+    final long slices = sliceCount.sum();
+    return slices == 0 ? 0 : unit.convert(totalQueueWaitNanos.sum() / slices, TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the longest time between handing a slice to the executor and the start of its search. */
+  public long getMaxQueueWait(TimeUnit unit) {
+    return unit.convert(maxQueueWaitNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the average, over searches, of the largest number of slices of a search that ran at the same time. */
+  public double getAveragePeakConcurrency() {
+    final long searches = searchCount.sum();
+    return searches == 0 ? 0 : (double) totalPeakConcurrency.sum() / searches;
+  }
+
+  /** Returns the largest number of slices of a single search that ran at the same time. */
+  public long getMaxPeakConcurrency() {
+    return maxPeakConcurrency.get();
+  }
+
+  @Override
+  public String toString() {
+    return "SliceExecutionStats(searches=" + getSearchCount()
+        + ", slices=" + getSliceCount()
+        + ", callerSlices=" + getCallerSliceCount()
+        + ", skippedSlices=" + getSkippedSliceCount()
+        + ", avgQueueWaitMicros=" + getAverageQueueWait(TimeUnit.MICROSECONDS)
+        + ", maxQueueWaitMicros=" + getMaxQueueWait(TimeUnit.MICROSECONDS)
+        + ", avgPeakConcurrency=" + getAveragePeakConcurrency()
+        + ", maxPeakConcurrency=" + getMaxPeakConcurrency() + ")";
+  }
+}
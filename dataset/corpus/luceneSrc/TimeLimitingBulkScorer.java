@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A {@link BulkScorer} that scores documents in windows of increasing size and checks a
+ * {@link QueryTimeout} between windows, throwing {@link TimeExceededException} once it says to exit.
+ * This lets {@link IndexSearcher} stop searching a leaf shortly after a deadline passes or a query is
+ * cancelled, at the cost of one check per window.
+ *
+ * @lucene.internal
+ */
+final class TimeLimitingBulkScorer extends BulkScorer {
+
+  // the initial number of doc IDs to score between checks, the window grows by 50% after each check
+  static final int INTERVAL = 100;
+  // the window stops growing at this size, so that the timeout is still checked regularly
+  static final int MAX_INTERVAL = 1 << 20;
+
+  /** Thrown when elapsed search time exceeds the allowed search time. */
+  @SuppressWarnings("serial")
+  static final class TimeExceededException extends RuntimeException {
+
+    private TimeExceededException() {
+      // no need to fill in the stack trace, this exception is used for control flow
+      super("TimeLimit Exceeded", null, false, false);
+    }
+  }
+
+  private final BulkScorer in;
+  private final QueryTimeout queryTimeout;
+
+  /**
+   * Create a TimeLimitingBulkScorer wrapper over another {@link BulkScorer} with a specified timeout.
+   *
+   * @param bulkScorer the wrapped {@link BulkScorer}
+   * @param queryTimeout the {@link QueryTimeout} to check
+   */
+  TimeLimitingBulkScorer(BulkScorer bulkScorer, QueryTimeout queryTimeout) {
+    this.in = Objects.requireNonNull(bulkScorer);
+    this.queryTimeout = Objects.requireNonNull(queryTimeout);
+  }
+
+  @Override
+  public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+    int interval = INTERVAL;
+    while (min < max) {
+      final int newMax = (int) Math.min((long) min + interval, max);
+      // grow the window so that the cost of checking the timeout becomes negligible on large leaves
+      if (interval < MAX_INTERVAL) {
+        interval += interval >> 1;
+      }
+      if (queryTimeout.shouldExit()) {
+        throw new TimeExceededException();
+      }
+      min = in.score(collector, acceptDocs, min, newMax);
+    }
+    return min;
+  }
+
+  @Override
+  public long cost() {
+    return in.cost();
+  }
+}
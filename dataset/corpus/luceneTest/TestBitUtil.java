@@ -129,4 +129,142 @@ public class TestBitUtil extends LuceneTestCase {
     }
     return bits;
   }
+
+  public void testPopCountKernels() {
+    for (int iter = 0; iter < 1000; iter++) {
+      int length = random().nextInt(40);
+      long[] arr1 = new long[length];
+      long[] arr2 = new long[length];
+      for (int j = 0; j < length; j++) {
+        arr1[j] = random().nextInt(4) == 0 ? 0L : random().nextLong();
+        arr2[j] = random().nextInt(4) == 0 ? -1L : random().nextLong();
+      }
+      int wordOffset = length == 0 ? 0 : random().nextInt(length);
+      int numWords = random().nextInt(length - wordOffset + 1);
+
+      long pop = 0, and = 0, or = 0, andNot = 0, xor = 0;
+      for (int j = wordOffset; j < wordOffset + numWords; j++) {
+        pop += Long.bitCount(arr1[j]);
+        and += Long.bitCount(arr1[j] & arr2[j]);
+        or += Long.bitCount(arr1[j] | arr2[j]);
+        andNot += Long.bitCount(arr1[j] & ~arr2[j]);
+        xor += Long.bitCount(arr1[j] ^ arr2[j]);
+      }
+      assertEquals(pop, BitUtil.pop_array(arr1, wordOffset, numWords));
+      assertEquals(and, BitUtil.pop_intersect(arr1, arr2, wordOffset, numWords));
+      assertEquals(or, BitUtil.pop_union(arr1, arr2, wordOffset, numWords));
+      assertEquals(andNot, BitUtil.pop_andnot(arr1, arr2, wordOffset, numWords));
+      assertEquals(xor, BitUtil.pop_xor(arr1, arr2, wordOffset, numWords));
+      assertEquals(BitUtil.pop_array(arr1, 0, length), BitUtil.countBits(arr1, length));
+
+      long[] dest = new long[length];
+      assertEquals(and, BitUtil.pop_intersect(arr1, arr2, dest, wordOffset, numWords));
+      for (int j = wordOffset; j < wordOffset + numWords; j++) {
+        assertEquals(arr1[j] & arr2[j], dest[j]);
+      }
+      assertEquals(or, BitUtil.pop_union(arr1, arr2, dest, wordOffset, numWords));
+      for (int j = wordOffset; j < wordOffset + numWords; j++) {
+        assertEquals(arr1[j] | arr2[j], dest[j]);
+      }
+      assertEquals(xor, BitUtil.pop_xor(arr1, arr2, dest, wordOffset, numWords));
+      for (int j = wordOffset; j < wordOffset + numWords; j++) {
+        assertEquals(arr1[j] ^ arr2[j], dest[j]);
+      }
+      // in place
+      long[] copy = arr1.clone();
+      assertEquals(andNot, BitUtil.pop_andnot(copy, arr2, copy, wordOffset, numWords));
+      for (int j = 0; j < length; j++) {
+        long expected = j >= wordOffset && j < wordOffset + numWords ? arr1[j] & ~arr2[j] : arr1[j];
+        assertEquals(expected, copy[j]);
+      }
+    }
+  }
+
+  public void testBulkInterleave() {
+    int len = random().nextInt(100);
+    int[] even = new int[len];
+    int[] odd = new int[len];
+    for (int i = 0; i < len; i++) {
+      even[i] = random().nextInt();
+      odd[i] = random().nextInt();
+    }
+    long[] interleaved = new long[len];
+    BitUtil.interleave(even, odd, interleaved, len);
+    for (int i = 0; i < len; i++) {
+      assertEquals(BitUtil.interleave(even[i], odd[i]), interleaved[i]);
+    }
+    int[] even2 = new int[len];
+    int[] odd2 = new int[len];
+    BitUtil.deinterleave(interleaved, even2, odd2, len);
+    for (int i = 0; i < len; i++) {
+      assertEquals(even[i], even2[i]);
+      assertEquals(odd[i], odd2[i]);
+      assertEquals(BitUtil.deinterleave(interleaved[i]), even2[i] & 0xFFFFFFFFL);
+    }
+  }
+
+  public void testBulkZigZag() {
+    int len = random().nextInt(100);
+    int[] ints = new int[len];
+    long[] longs = new long[len];
+    for (int i = 0; i < len; i++) {
+      ints[i] = random().nextInt();
+      longs[i] = random().nextLong();
+    }
+    int[] encodedInts = new int[len];
+    long[] encodedLongs = new long[len];
+    BitUtil.zigZagEncode(ints, encodedInts);
+    BitUtil.zigZagEncode(longs, encodedLongs);
+    for (int i = 0; i < len; i++) {
+      assertEquals(BitUtil.zigZagEncode(ints[i]), encodedInts[i]);
+      assertEquals(BitUtil.zigZagEncode(longs[i]), encodedLongs[i]);
+    }
+    // in place
+    BitUtil.zigZagDecode(encodedInts, encodedInts);
+    BitUtil.zigZagDecode(encodedLongs, encodedLongs);
+    for (int i = 0; i < len; i++) {
+      assertEquals(ints[i], encodedInts[i]);
+      assertEquals(longs[i], encodedLongs[i]);
+    }
+  }
+
+  public void testMortonRanges() {
+    for (int iter = 0; iter < 100; iter++) {
+      int minX = random().nextInt(64), maxX = minX + random().nextInt(64 - minX);
+      int minY = random().nextInt(64), maxY = minY + random().nextInt(64 - minY);
+      int maxRanges = random().nextBoolean() ? Integer.MAX_VALUE : TestUtil.nextInt(random(), 1, 20);
+      long[] ranges = BitUtil.mortonRanges(minX, maxX, minY, maxY, maxRanges);
+      assertTrue(ranges.length > 0);
+      assertTrue(ranges.length / 2 <= maxRanges);
+      for (int i = 0; i < ranges.length; i += 2) {
+        assertTrue(Long.compareUnsigned(ranges[i], ranges[i + 1]) <= 0);
+        if (i > 0) {
+          // sorted, and adjacent ranges are merged
+          assertTrue(Long.compareUnsigned(ranges[i - 1] + 1, ranges[i]) < 0);
+        }
+      }
+      for (int x = 0; x < 80; x++) {
+        for (int y = 0; y < 80; y++) {
+          long code = BitUtil.interleave(x, y);
+          boolean covered = false;
+          for (int i = 0; i < ranges.length; i += 2) {
+            if (Long.compareUnsigned(code, ranges[i]) >= 0 && Long.compareUnsigned(code, ranges[i + 1]) <= 0) {
+              covered = true;
+            }
+          }
+          boolean inBox = x >= minX && x <= maxX && y >= minY && y <= maxY;
+          if (inBox) {
+            assertTrue(covered);
+          } else if (maxRanges == Integer.MAX_VALUE) {
+            assertFalse(covered);
+          }
+        }
+      }
+    }
+
+    // the whole space is a single range
+    assertArrayEquals(new long[] {0L, -1L}, BitUtil.mortonRanges(0, -1, 0, -1, 1));
+    expectThrows(IllegalArgumentException.class, () -> BitUtil.mortonRanges(2, 1, 0, 0, 10));
+    expectThrows(IllegalArgumentException.class, () -> BitUtil.mortonRanges(0, 0, 0, 0, 0));
+  }
 }
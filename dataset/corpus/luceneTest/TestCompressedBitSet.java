@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.util;
+
+import java.util.Arrays;
+
+public class TestCompressedBitSet extends LuceneTestCase {
+
+  public void testAgainstBitUtil() {
+    for (int iter = 0; iter < 50; iter++) {
+      int numLongs = TestUtil.nextInt(random(), 1, 5000);
+      long[] bits = buildRandomBits(numLongs);
+      CompressedBitSet set = CompressedBitSet.fromBits(bits, numLongs);
+      assertEquals(numLongs * Long.SIZE, set.length());
+      assertEquals(BitUtil.countBits(bits, numLongs), set.cardinality());
+
+      for (int i = 0; i < 1000; i++) {
+        int bitIndex = random().nextInt(set.length());
+        assertEquals(BitUtil.isBitSet(bits, numLongs, bitIndex), set.isBitSet(bitIndex));
+        assertEquals(BitUtil.isBitSet(bits, numLongs, bitIndex), set.get(bitIndex));
+        bitIndex = random().nextInt(set.length() + 1);
+        assertEquals(BitUtil.countBitsUpTo(bits, numLongs, bitIndex), set.countBitsUpTo(bitIndex));
+        assertEquals(BitUtil.previousBitSet(bits, numLongs, bitIndex), set.previousBitSet(bitIndex));
+        bitIndex = random().nextInt(set.length() + 1) - 1;
+        assertEquals(BitUtil.nextBitSet(bits, numLongs, bitIndex), set.nextBitSet(bitIndex));
+      }
+      assertEquals(-1, set.nextBitSet(set.length() - 1));
+      assertEquals(BitUtil.previousBitSet(bits, numLongs, set.length()), set.previousBitSet(set.length()));
+      assertEquals(set.cardinality(), set.countBitsUpTo(set.length()));
+
+      // iteration visits the same bits
+      int count = 0;
+      for (int bitIndex = set.nextBitSet(-1); bitIndex != -1; bitIndex = set.nextBitSet(bitIndex)) {
+        assertTrue(BitUtil.isBitSet(bits, numLongs, bitIndex));
+        count++;
+      }
+      assertEquals(set.cardinality(), count);
+    }
+  }
+
+  public void testPopCounts() {
+    for (int iter = 0; iter < 50; iter++) {
+      int numLongs = TestUtil.nextInt(random(), 1, 5000);
+      int otherNumLongs = TestUtil.nextInt(random(), 1, numLongs);
+      long[] bits = buildRandomBits(numLongs);
+      long[] other = buildRandomBits(otherNumLongs);
+      long[] otherPadded = Arrays.copyOf(other, numLongs);
+      CompressedBitSet set = CompressedBitSet.fromBits(bits, numLongs);
+      CompressedBitSet otherSet = CompressedBitSet.fromBits(other, otherNumLongs);
+
+      long intersection = BitUtil.pop_intersect(bits, otherPadded, 0, numLongs);
+      long union = BitUtil.pop_union(bits, otherPadded, 0, numLongs);
+      long andNot = BitUtil.pop_andnot(bits, otherPadded, 0, numLongs);
+      long xor = BitUtil.pop_xor(bits, otherPadded, 0, numLongs);
+
+      // compressed against compressed
+      assertEquals(intersection, set.pop_intersect(otherSet));
+      assertEquals(intersection, otherSet.pop_intersect(set));
+      assertEquals(union, set.pop_union(otherSet));
+      assertEquals(andNot, set.pop_andnot(otherSet));
+      assertEquals(xor, set.pop_xor(otherSet));
+
+      // compressed against dense
+      assertEquals(intersection, set.pop_intersect(other, otherNumLongs));
+      assertEquals(intersection, otherSet.pop_intersect(bits, numLongs));
+      assertEquals(union, set.pop_union(other, otherNumLongs));
+      assertEquals(andNot, set.pop_andnot(other, otherNumLongs));
+      assertEquals(xor, set.pop_xor(other, otherNumLongs));
+
+      long[] intersected = bits.clone();
+      assertEquals(intersection, otherSet.intersect(intersected, numLongs));
+      for (int i = 0; i < numLongs; i++) {
+        assertEquals(bits[i] & otherPadded[i], intersected[i]);
+      }
+    }
+  }
+
+  public void testBuilder() {
+    int numLongs = TestUtil.nextInt(random(), 1, 5000);
+    long[] bits = buildRandomBits(numLongs);
+    CompressedBitSet.Builder builder = new CompressedBitSet.Builder(numLongs * Long.SIZE);
+    for (int bitIndex = BitUtil.nextBitSet(bits, numLongs, -1); bitIndex != -1; bitIndex = BitUtil.nextBitSet(bits, numLongs, bitIndex)) {
+      builder.add(bitIndex);
+    }
+    CompressedBitSet set = builder.build();
+    CompressedBitSet expected = CompressedBitSet.fromBits(bits, numLongs);
+    assertEquals(expected.cardinality(), set.cardinality());
+    assertEquals(expected.cardinality(), set.pop_intersect(expected));
+
+    CompressedBitSet.Builder illegal = new CompressedBitSet.Builder(100);
+    illegal.add(10);
+    expectThrows(IllegalArgumentException.class, () -> illegal.add(10));
+    expectThrows(IllegalArgumentException.class, () -> illegal.add(100));
+  }
+
+  public void testMemory() {
+    int numLongs = 1 << 14; // 1M bits
+    // sparse
+    long[] bits = new long[numLongs];
+    for (int i = 0; i < numLongs; i += 2) {
+      bits[i] = 1L << random().nextInt(64);
+    }
+    CompressedBitSet set = CompressedBitSet.fromBits(bits, numLongs);
+    assertTrue(set.toString(), set.ramBytesUsed() < RamUsageEstimator.sizeOf(bits) / 4);
+
+    // a few long runs
+    bits = new long[numLongs];
+    Arrays.fill(bits, 100, 5000, -1L);
+    Arrays.fill(bits, 9000, 9100, -1L);
+    set = CompressedBitSet.fromBits(bits, numLongs);
+    assertTrue(set.toString(), set.ramBytesUsed() < RamUsageEstimator.sizeOf(bits) / 100);
+
+    // empty
+    set = CompressedBitSet.fromBits(new long[numLongs], numLongs);
+    assertEquals(0, set.cardinality());
+    assertEquals(-1, set.nextBitSet(-1));
+    assertEquals(-1, set.previousBitSet(set.length()));
+  }
+
+  private long[] buildRandomBits(int numLongs) {
+    long[] bits = new long[numLongs];
+    switch (random().nextInt(4)) {
+      case 0:
+        // sparse, mostly array containers
+        for (int i = 0; i < numLongs; i++) {
+          bits[i] = random().nextInt(300) == 0 ? 1L << random().nextInt(64) : 0L;
+        }
+        break;
+      case 1:
+        // dense, bitmap containers
+        for (int i = 0; i < numLongs; i++) {
+          bits[i] = random().nextLong();
+        }
+        break;
+      case 2:
+        // runs
+        for (int start = 0, numBits = numLongs * Long.SIZE; start < numBits; ) {
+          int end = Math.min(numBits, start + random().nextInt(5000));
+          for (int i = start; i < end; i++) {
+            bits[i >>> 6] |= 1L << i;
+          }
+          start = end + random().nextInt(5000);
+        }
+        break;
+      default:
+        // mixed
+        for (int i = 0; i < numLongs; i++) {
+          bits[i] = random().nextInt(3) == 0 ? -1L : random().nextInt(10) == 0 ? random().nextLong() : 0L;
+        }
+        break;
+    }
+    return bits;
+  }
+}
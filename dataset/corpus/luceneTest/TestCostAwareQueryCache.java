@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestCostAwareQueryCache extends LuceneTestCase {
+
+  private static final QueryCachingPolicy ALWAYS_CACHE = new QueryCachingPolicy() {
+    @Override
+    public void onUse(Query query) {}
+
+    @Override
+    public boolean shouldCache(Query query) {
+      return true;
+    }
+  };
+
+  private static Directory newIndex(int numDocs) throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("color", i % 3 == 0 ? "red" : "blue", Field.Store.NO));
+      doc.add(newStringField("size", i % 2 == 0 ? "small" : "large", Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+    return dir;
+  }
+
+  private static Query newFilter(String color, String size) {
+    return new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("color", color)), Occur.FILTER)
+        .add(new TermQuery(new Term("size", size)), Occur.FILTER)
+        .build();
+  }
+
+  public void testHitsAndMisses() throws Exception {
+    Directory dir = newIndex(100);
+    IndexReader reader = DirectoryReader.open(dir);
+    CostAwareQueryCache cache = new CostAwareQueryCache(1 << 20, 100);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(cache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    Query query = newFilter("red", "small");
+    IndexSearcher uncached = new IndexSearcher(reader);
+    uncached.setQueryCache(null);
+    TotalHitCountCollector expected = new TotalHitCountCollector();
+    uncached.search(query, expected);
+
+    TotalHitCountCollector collector = new TotalHitCountCollector();
+    searcher.search(query, collector);
+    assertEquals(expected.getTotalHits(), collector.getTotalHits());
+    assertTrue(cache.getMissCount() > 0);
+    assertTrue(cache.getCacheCount() > 0);
+    assertTrue(cache.getCacheSize() > 0);
+    assertTrue(cache.ramBytesUsed() > 0);
+    assertTrue(cache.ramBytesUsed() <= cache.getMaxRamBytesUsed());
+    assertEquals(0, cache.getHitCount());
+
+    collector = new TotalHitCountCollector();
+    searcher.search(newFilter("red", "small"), collector);
+    assertEquals(expected.getTotalHits(), collector.getTotalHits());
+    assertTrue(cache.getHitCount() > 0);
+    assertTrue(cache.getSavedNanos() >= 0);
+
+    cache.clear();
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.ramBytesUsed());
+    IOUtils.close(reader, dir);
+  }
+
+  public void testEntriesThatDoNotFitAreRejected() throws Exception {
+    Directory dir = newIndex(1000);
+    IndexReader reader = DirectoryReader.open(dir);
+    CostAwareQueryCache cache = new CostAwareQueryCache(CostAwareQueryCache.ENTRY_OVERHEAD_BYTES, 100);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(cache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    Query query = newFilter("blue", "large");
+    IndexSearcher uncached = new IndexSearcher(reader);
+    uncached.setQueryCache(null);
+    TotalHitCountCollector expected = new TotalHitCountCollector();
+    uncached.search(query, expected);
+
+    TotalHitCountCollector collector = new TotalHitCountCollector();
+    searcher.search(query, collector);
+    assertEquals(expected.getTotalHits(), collector.getTotalHits());
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.getHitCount());
+    final long rejectionCount = cache.getRejectionCount();
+    assertTrue(rejectionCount > 0);
+
+    // rejections are remembered, so the matches are not materialized again
+    collector = new TotalHitCountCollector();
+    searcher.search(query, collector);
+    assertEquals(expected.getTotalHits(), collector.getTotalHits());
+    assertEquals(rejectionCount, cache.getRejectionCount());
+    IOUtils.close(reader, dir);
+  }
+
+  public void testEntriesAreRemovedWhenCoreIsClosed() throws Exception {
+    Directory dir = newIndex(100);
+    IndexReader reader = DirectoryReader.open(dir);
+    CostAwareQueryCache cache = new CostAwareQueryCache(1 << 20, 100);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(cache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    searcher.search(newFilter("red", "large"), new TotalHitCountCollector());
+    searcher.search(newFilter("blue", "small"), new TotalHitCountCollector());
+    assertTrue(cache.getCacheSize() > 0);
+
+    reader.close();
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.ramBytesUsed());
+    dir.close();
+  }
+
+  /** A doc id set that uses a fixed amount of heap. */
+  private static DocIdSet newDocIdSet(long ramBytesUsed) {
+    return new DocIdSet() {
+      @Override
+      public DocIdSetIterator iterator() {
+        return null;
+      }
+
+      @Override
+      public long ramBytesUsed() {
+        return ramBytesUsed;
+      }
+    };
+  }
+
+  public void testRejectedEntriesAreOfferedAgain() throws Exception {
+    Directory dir = newIndex(10);
+    IndexReader reader = DirectoryReader.open(dir);
+    IndexReader.CacheHelper cacheHelper = reader.leaves().get(0).reader().getCoreCacheHelper();
+    IndexReader.CacheKey coreKey = cacheHelper.getKey();
+    // room for a single entry
+    CostAwareQueryCache cache = new CostAwareQueryCache(CostAwareQueryCache.ENTRY_OVERHEAD_BYTES + 1000, 100);
+
+    Query popular = newFilter("red", "small");
+    assertTrue(cache.offer(popular, cacheHelper, newDocIdSet(1000), 1000));
+    for (int i = 0; i < 10; i++) {
+      assertNotNull(cache.get(popular, coreKey));
+    }
+
+    Query newcomer = newFilter("blue", "large");
+    assertNull(cache.get(newcomer, coreKey));
+    assertFalse(cache.offer(newcomer, cacheHelper, newDocIdSet(1000), 1000));
+    assertEquals(1, cache.getRejectionCount());
+    for (int i = 1; i < CostAwareQueryCache.REJECTED_LOOKUPS_BEFORE_RETRY; i++) {
+      assertTrue(cache.isRejected(newcomer, coreKey));
+    }
+    // a query that keeps being used is offered again, and its lookups count as hits
+    assertFalse(cache.isRejected(newcomer, coreKey));
+    assertTrue(cache.offer(newcomer, cacheHelper, newDocIdSet(1000), 1000));
+    assertEquals(1, cache.getCacheSize());
+    assertEquals(1, cache.getEvictionCount());
+    assertNotNull(cache.get(newcomer, coreKey));
+    assertNull(cache.get(popular, coreKey));
+    IOUtils.close(reader, dir);
+  }
+
+  public void testHitCountsDecay() throws Exception {
+    Directory dir = newIndex(10);
+    IndexReader reader = DirectoryReader.open(dir);
+    IndexReader.CacheHelper cacheHelper = reader.leaves().get(0).reader().getCoreCacheHelper();
+    IndexReader.CacheKey coreKey = cacheHelper.getKey();
+    CostAwareQueryCache cache = new CostAwareQueryCache(CostAwareQueryCache.ENTRY_OVERHEAD_BYTES + 1000, 100);
+
+    Query popular = newFilter("red", "small");
+    assertTrue(cache.offer(popular, cacheHelper, newDocIdSet(1000), 1000));
+    for (int i = 0; i < 100; i++) {
+      assertNotNull(cache.get(popular, coreKey));
+    }
+    // an entry that is a bit more expensive to compute is not worth the hits of the cached one
+    Query newcomer = newFilter("blue", "large");
+    assertFalse(cache.offer(newcomer, cacheHelper, newDocIdSet(1000), 2000));
+
+    // the cached entry is not used anymore, its hits decay
+    Query other = newFilter("blue", "small");
+    for (int i = 0; i < 10 * CostAwareQueryCache.MIN_HIT_DECAY_INTERVAL; i++) {
+      assertNull(cache.get(other, coreKey));
+    }
+    assertTrue(cache.offer(newcomer, cacheHelper, newDocIdSet(1000), 2000));
+    assertNull(cache.get(popular, coreKey));
+    IOUtils.close(reader, dir);
+  }
+
+  public void testIllegalArguments() {
+    expectThrows(IllegalArgumentException.class, () -> new CostAwareQueryCache(0, 10));
+    expectThrows(IllegalArgumentException.class, () -> new CostAwareQueryCache(1024, -1));
+  }
+}
@@ -20,6 +20,8 @@ package org.apache.lucene.search;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -30,15 +32,22 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.QueryTimeout;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LuceneTestCase;
@@ -299,4 +308,705 @@ public class TestIndexSearcher extends LuceneTestCase {
       assertEquals(leaves.size() - 1, numExecutions.get());
     }
   }
+
+  public void testSlicesGroupSmallLeaves() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    w.addDocument(new Document());
+    IndexReader r = w.getReader();
+    w.close();
+    IndexReader[] subReaders = new IndexReader[10];
+    Arrays.fill(subReaders, r);
+    MultiReader multiReader = new MultiReader(subReaders, false);
+    List<LeafReaderContext> leaves = multiReader.leaves();
+
+    // one slice per leaf when a slice can only hold a single document
+    assertEquals(10, IndexSearcher.slices(leaves, 1, 5).length);
+
+    // the docs-per-slice budget
+    IndexSearcher.LeafSlice[] slices = IndexSearcher.slices(leaves, 3, 100);
+    assertEquals(4, slices.length);
+    for (IndexSearcher.LeafSlice slice : slices) {
+      assertTrue(slice.leaves.length <= 3);
+    }
+
+    // the segments-per-slice budget
+    slices = IndexSearcher.slices(leaves, 100, 4);
+    assertEquals(3, slices.length);
+
+    // all leaves in a single slice, in index order
+    slices = IndexSearcher.slices(leaves, 100, 100);
+    assertEquals(1, slices.length);
+    for (int i = 0; i < leaves.size(); i++) {
+      assertSame(leaves.get(i), slices[0].leaves[i]);
+    }
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.slices(leaves, 0, 5);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.slices(leaves, 5, 0);
+    });
+
+    multiReader.close();
+    IOUtils.close(r, dir);
+  }
+
+  public void testSlicesLargeLeavesAreNotGrouped() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 10; i++) {
+      w.addDocument(new Document());
+    }
+    w.forceMerge(1);
+    IndexReader large = w.getReader();
+    w.close();
+    Directory dir2 = newDirectory();
+    RandomIndexWriter w2 = new RandomIndexWriter(random(), dir2);
+    w2.addDocument(new Document());
+    IndexReader small = w2.getReader();
+    w2.close();
+
+    MultiReader multiReader = new MultiReader(new IndexReader[] {small, large, small, small}, false);
+    IndexSearcher.LeafSlice[] slices = IndexSearcher.slices(multiReader.leaves(), 5, 5);
+    assertEquals(2, slices.length);
+    assertEquals(1, slices[0].leaves.length);
+    assertEquals(10, slices[0].leaves[0].reader().maxDoc());
+    assertEquals(3, slices[1].leaves.length);
+
+    multiReader.close();
+    IOUtils.close(large, small, dir, dir2);
+  }
+
+  public void testSlicesPartitionLargeLeaves() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 25; i++) {
+      w.addDocument(new Document());
+    }
+    w.forceMerge(1);
+    IndexReader r = w.getReader();
+    w.close();
+
+    IndexSearcher.LeafSlice[] slices = IndexSearcher.slices(r.leaves(), 10, 5, true);
+    assertEquals(3, slices.length);
+    int expectedMinDocId = 0;
+    for (IndexSearcher.LeafSlice slice : slices) {
+      assertEquals(1, slice.partitions.length);
+      IndexSearcher.LeafReaderContextPartition partition = slice.partitions[0];
+      assertSame(r.leaves().get(0), partition.ctx);
+      assertSame(partition.ctx, slice.leaves[0]);
+      assertFalse(partition.isEntireSegment());
+      assertEquals(expectedMinDocId, partition.minDocId);
+      assertTrue(partition.maxDocId - partition.minDocId <= 10);
+      expectedMinDocId = partition.maxDocId;
+    }
+    assertEquals(25, expectedMinDocId);
+
+    // without partitions, the leaf gets a single slice
+    slices = IndexSearcher.slices(r.leaves(), 10, 5, false);
+    assertEquals(1, slices.length);
+    assertTrue(slices[0].partitions[0].isEntireSegment());
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.LeafReaderContextPartition.createFromAndTo(r.leaves().get(0), 5, 5);
+    });
+    expectThrows(IllegalArgumentException.class, () -> {
+      IndexSearcher.LeafReaderContextPartition.createFromAndTo(r.leaves().get(0), 0, 26);
+    });
+
+    IOUtils.close(r, dir);
+  }
+
+  public void testSlicesPartitionSizesAreEven() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = TestUtil.nextInt(random(), 10, 100);
+    for (int i = 0; i < numDocs; i++) {
+      w.addDocument(new Document());
+    }
+    w.forceMerge(1);
+    IndexReader r = w.getReader();
+    w.close();
+
+    for (int maxDocsPerSlice = 1; maxDocsPerSlice < numDocs; maxDocsPerSlice++) {
+      IndexSearcher.LeafSlice[] slices = IndexSearcher.slices(r.leaves(), maxDocsPerSlice, 5, true);
+      assertEquals((numDocs + maxDocsPerSlice - 1) / maxDocsPerSlice, slices.length);
+      int minSize = Integer.MAX_VALUE;
+      int maxSize = 0;
+      int expectedMinDocId = 0;
+      for (IndexSearcher.LeafSlice slice : slices) {
+        IndexSearcher.LeafReaderContextPartition partition = slice.partitions[0];
+        assertEquals(expectedMinDocId, partition.minDocId);
+        final int size = partition.maxDocId - partition.minDocId;
+        assertTrue(size <= maxDocsPerSlice);
+        minSize = Math.min(minSize, size);
+        maxSize = Math.max(maxSize, size);
+        expectedMinDocId = partition.maxDocId;
+      }
+      assertEquals(numDocs, expectedMinDocId);
+      assertTrue("sizes between " + minSize + " and " + maxSize + " for maxDocsPerSlice=" + maxDocsPerSlice,
+          maxSize - minSize <= 1);
+    }
+
+    IOUtils.close(r, dir);
+  }
+
+  public void testSearchPartitionedSingleSegment() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 100; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("field", Integer.toString(i % 7), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.deleteDocuments(new Term("field", "3"));
+    w.forceMerge(1);
+    IndexReader r = w.getReader();
+    w.close();
+
+    AtomicInteger numExecutions = new AtomicInteger(0);
+    IndexSearcher partitioned = new IndexSearcher(r, task -> {
+      numExecutions.incrementAndGet();
+      task.run();
+    }) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 16, 5, true);
+      }
+    };
+    IndexSearcher s = new IndexSearcher(r);
+    assertTrue(partitioned.getSlices().length > 1);
+
+    for (Query query : Arrays.asList(
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("field", "1")),
+        new TermQuery(new Term("field", "3")))) {
+      assertEquals(s.count(query), partitioned.count(query));
+      TopDocs expected = s.search(query, 200);
+      TopDocs actual = partitioned.search(query, 200);
+      assertEquals(expected.totalHits.value, actual.totalHits.value);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; i++) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      }
+    }
+    assertTrue(numExecutions.get() > 0);
+
+    IOUtils.close(r, dir);
+  }
+
+  public void testCallerThreadRunsSlicesNotStartedByExecutor() throws Exception {
+    List<Runnable> dropped = new ArrayList<>();
+    // an executor that never runs the tasks it is given
+    IndexSearcher searcher = new IndexSearcher(reader, dropped::add) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 1, 1, true);
+      }
+    };
+    assertTrue(searcher.getSlices().length > 1);
+    TopDocs topDocs = searcher.search(new MatchAllDocsQuery(), 200);
+    assertEquals(100, topDocs.totalHits.value);
+    assertEquals(searcher.getSlices().length - 1, dropped.size());
+    assertFalse(searcher.timedOut());
+  }
+
+  public void testTimeout() throws Exception {
+    AtomicInteger numExecutions = new AtomicInteger(0);
+    IndexSearcher concurrent = new IndexSearcher(reader, task -> {
+      numExecutions.incrementAndGet();
+      task.run();
+    }) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 10, 1, true);
+      }
+    };
+    IndexSearcher sequential = new IndexSearcher(reader);
+
+    for (IndexSearcher searcher : new IndexSearcher[] {sequential, concurrent}) {
+      QueryCancellation cancellation = QueryCancellation.create();
+      searcher.setTimeout(cancellation);
+      assertSame(cancellation, searcher.getTimeout());
+      assertEquals(100, searcher.search(new MatchAllDocsQuery(), 10).totalHits.value);
+      assertFalse(searcher.timedOut());
+
+      cancellation.cancel();
+      assertEquals(0, searcher.search(new MatchAllDocsQuery(), 10).totalHits.value);
+      assertTrue(searcher.timedOut());
+
+      searcher.setTimeout(QueryCancellation.withTimeout(0, TimeUnit.MILLISECONDS));
+      assertEquals(0, searcher.search(new TermQuery(new Term("field2", "true")), 10).totalHits.value);
+      assertTrue(searcher.timedOut());
+
+      searcher.setTimeout(null);
+      assertEquals(100, searcher.search(new MatchAllDocsQuery(), 10).totalHits.value);
+      assertFalse(searcher.timedOut());
+    }
+  }
+
+  public void testTimeLimitingBulkScorer() throws Exception {
+    AtomicInteger checks = new AtomicInteger();
+    BulkScorer in = new BulkScorer() {
+      @Override
+      public int score(LeafCollector collector, Bits acceptDocs, int min, int max) {
+        return max;
+      }
+
+      @Override
+      public long cost() {
+        return 1000;
+      }
+    };
+    QueryTimeout exitAfterThreeChecks = new QueryTimeout() {
+      @Override
+      public boolean shouldExit() {
+        return checks.incrementAndGet() > 3;
+      }
+
+      @Override
+      public boolean isTimeoutEnabled() {
+        return true;
+      }
+    };
+    TimeLimitingBulkScorer scorer = new TimeLimitingBulkScorer(in, exitAfterThreeChecks);
+    assertEquals(1000, scorer.cost());
+    // windows of 100, 150 and 225 docs are scored before the fourth check exits
+    assertEquals(475, scorer.score(null, null, 0, 475));
+    checks.set(0);
+    expectThrows(TimeLimitingBulkScorer.TimeExceededException.class, () -> {
+      scorer.score(null, null, 0, 10_000);
+    });
+    assertEquals(4, checks.get());
+  }
+
+  public void testMaxConcurrentSlicesPerQuery() throws Exception {
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    AtomicInteger numExecutions = new AtomicInteger(0);
+    IndexSearcher searcher = new IndexSearcher(reader, task -> {
+      numExecutions.incrementAndGet();
+      service.execute(task);
+    }) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 10, 1, true);
+      }
+    };
+    final int numSlices = searcher.getSlices().length;
+    assertTrue(numSlices > 1);
+    assertEquals(Integer.MAX_VALUE, searcher.getMaxConcurrentSlicesPerQuery());
+    expectThrows(IllegalArgumentException.class, () -> {
+      searcher.setMaxConcurrentSlicesPerQuery(0);
+    });
+
+    // a single slice at a time: everything runs on the caller thread
+    searcher.setMaxConcurrentSlicesPerQuery(1);
+    assertEquals(100, searcher.search(new MatchAllDocsQuery(), 200).totalHits.value);
+    assertEquals(0, numExecutions.get());
+    SliceExecutionStats stats = searcher.getSliceExecutionStats();
+    assertEquals(1, stats.getSearchCount());
+    assertEquals(numSlices, stats.getSliceCount());
+    assertEquals(numSlices, stats.getCallerSliceCount());
+    assertEquals(1, stats.getMaxPeakConcurrency());
+    // slices that run inline on the caller thread never wait in a queue
+    assertEquals(0, stats.getMaxQueueWait(TimeUnit.NANOSECONDS));
+
+    searcher.setMaxConcurrentSlicesPerQuery(2);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(100, searcher.search(new MatchAllDocsQuery(), 200).totalHits.value);
+    }
+    assertEquals(11, stats.getSearchCount());
+    assertEquals(11 * numSlices, stats.getSliceCount());
+    assertTrue(stats.getMaxPeakConcurrency() <= 2);
+    assertTrue(stats.getMaxQueueWait(TimeUnit.NANOSECONDS) >= stats.getAverageQueueWait(TimeUnit.NANOSECONDS));
+
+    TestUtil.shutdownExecutorService(service);
+  }
+
+  public void testVirtualThreadPerTaskExecutor() throws Exception {
+    final ExecutorService service;
+    try {
+      service = IndexSearcher.newVirtualThreadPerTaskExecutor();
+    } catch (UnsupportedOperationException e) {
+      assumeTrue("virtual threads are not supported: " + e.getMessage(), false);
+      return;
+    }
+    IndexSearcher searcher = new IndexSearcher(reader, service) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 10, 1, true);
+      }
+    };
+    searcher.setMaxConcurrentSlicesPerQuery(3);
+    assertEquals(100, searcher.search(new MatchAllDocsQuery(), 200).totalHits.value);
+    assertTrue(searcher.getSliceExecutionStats().getMaxPeakConcurrency() <= 3);
+    TestUtil.shutdownExecutorService(service);
+  }
+
+  public void testConcurrentTopHitsMatchSequential() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      final int numTerms = 1 + random().nextInt(4);
+      for (int j = 0; j < numTerms; j++) {
+        doc.add(newStringField("foo", random().nextBoolean() ? "bar" : "baz", Store.NO));
+      }
+      doc.add(new SortedDocValuesField("sort", new BytesRef(Integer.toString(random().nextInt(10)))));
+      w.addDocument(doc);
+    }
+    IndexReader r = w.getReader();
+    w.close();
+
+    // many small slices that share the minimum competitive score while scoring concurrently
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    IndexSearcher concurrent = new IndexSearcher(r, service) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, 50, 1, true);
+      }
+    };
+    IndexSearcher sequential = new IndexSearcher(r);
+    assertTrue(concurrent.getSlices().length > 1);
+
+    Query query = new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+        .add(new TermQuery(new Term("foo", "baz")), Occur.SHOULD)
+        .build();
+    Sort sort = new Sort(new SortField("sort", SortField.Type.STRING), SortField.FIELD_SCORE);
+    for (int n : new int[] {1, 10, 100}) {
+      assertSameTopHits(sequential.search(query, n), concurrent.search(query, n));
+      assertSameTopHits(sequential.search(query, n, sort, true), concurrent.search(query, n, sort, true));
+    }
+
+    TestUtil.shutdownExecutorService(service);
+    IOUtils.close(r, dir);
+  }
+
+  private static void assertSameTopHits(TopDocs expected, TopDocs actual) {
+    assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+    for (int i = 0; i < expected.scoreDocs.length; i++) {
+      assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+    }
+    // the hit count may only be a lower bound, but never above the exact count
+    assertTrue(actual.totalHits.value <= expected.totalHits.value
+        || expected.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+  }
+
+  public void testCountPerLeafFastPaths() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextBoolean()) {
+        doc.add(new StringField("foo", "bar", Store.NO));
+      }
+      if (random().nextInt(5) != 0) {
+        doc.add(new IntPoint("point", random().nextInt(100)));
+      }
+      if (random().nextBoolean()) {
+        doc.add(new SortedDocValuesField("dv", new BytesRef("value")));
+      }
+      if (random().nextInt(5) != 0) {
+        // a value without tokens has a norm but no terms
+        doc.add(new TextField("text", rarely() ? "" : "some text", Store.NO));
+      }
+      if (rarely()) {
+        doc.add(new StringField("delete", "yes", Store.NO));
+      }
+      w.addDocument(doc);
+      if (rarely()) {
+        w.commit();
+      }
+    }
+    for (boolean delete : new boolean[] {false, true}) {
+      if (delete) {
+        w.deleteDocuments(new Term("delete", "yes"));
+      }
+      final IndexReader reader = w.getReader();
+      final IndexSearcher searcher = newSearcher(reader);
+      for (Query query : Arrays.asList(
+          new TermQuery(new Term("foo", "bar")),
+          new TermQuery(new Term("foo", "missing")),
+          IntPoint.newRangeQuery("point", 0, 99),
+          IntPoint.newRangeQuery("point", Integer.MIN_VALUE, Integer.MAX_VALUE),
+          IntPoint.newRangeQuery("point", 10, 20),
+          IntPoint.newRangeQuery("point", 200, 300),
+          IntPoint.newRangeQuery("missing", 0, 10),
+          new DocValuesFieldExistsQuery("dv"),
+          new DocValuesFieldExistsQuery("missing"),
+          new NormsFieldExistsQuery("text"),
+          new NormsFieldExistsQuery("missing"),
+          new ConstantScoreQuery(IntPoint.newRangeQuery("point", 0, 99)))) {
+        assertEquals(query.toString(), searcher.search(query, 1).totalHits.value, searcher.count(query));
+      }
+      reader.close();
+    }
+    w.close();
+    dir.close();
+  }
+
+  public void testLeafCount() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 10; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("foo", "bar", Store.NO));
+      doc.add(new IntPoint("point", i));
+      doc.add(new TextField("text", "value " + i, Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+    LeafReaderContext leaf = reader.leaves().get(0);
+    assertEquals(10, searcher.leafCount(new TermQuery(new Term("foo", "bar")), leaf));
+    assertEquals(10, searcher.leafCount(IntPoint.newRangeQuery("point", -5, 50), leaf));
+    assertEquals(0, searcher.leafCount(IntPoint.newRangeQuery("point", 20, 50), leaf));
+    // a range that partially overlaps the points of the leaf needs a search
+    assertEquals(-1, searcher.leafCount(IntPoint.newRangeQuery("point", 2, 5), leaf));
+    assertEquals(0, searcher.leafCount(new DocValuesFieldExistsQuery("foo"), leaf));
+    assertEquals(10, searcher.leafCount(new NormsFieldExistsQuery("text"), leaf));
+    // string fields omit norms
+    assertEquals(0, searcher.leafCount(new NormsFieldExistsQuery("foo"), leaf));
+    assertEquals(4, searcher.count(IntPoint.newRangeQuery("point", 2, 5)));
+
+    // leaves the default implementation does not know about are searched
+    AtomicInteger leafCountCalls = new AtomicInteger();
+    IndexSearcher custom = new IndexSearcher(reader) {
+      @Override
+      protected int leafCount(Query query, LeafReaderContext ctx) throws IOException {
+        leafCountCalls.incrementAndGet();
+        if (query instanceof BooleanQuery) {
+          return 42;
+        }
+        return super.leafCount(query, ctx);
+      }
+    };
+    Query query = new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+        .add(new TermQuery(new Term("foo", "baz")), Occur.SHOULD)
+        .build();
+    assertEquals(42, custom.count(query));
+    assertEquals(1, leafCountCalls.get());
+    reader.close();
+    dir.close();
+  }
+
+  public void testCountSearchesRemainingLeavesConcurrently() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (int i = 0; i < 60; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("foo", i % 2 == 0 ? "bar" : "baz", Store.NO));
+      w.addDocument(doc);
+      if (i % 20 == 19) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    assertTrue(reader.leaves().size() >= 3);
+
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    AtomicInteger numExecutions = new AtomicInteger();
+    IndexSearcher searcher = new IndexSearcher(reader, task -> {
+      numExecutions.incrementAndGet();
+      service.execute(task);
+    }) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        // split every leaf into two partitions
+        return slices(leaves, 10, 1, true);
+      }
+
+      @Override
+      protected int leafCount(Query query, LeafReaderContext ctx) throws IOException {
+        // only the first leaf can be counted from index statistics
+        return ctx.ord == 0 ? super.leafCount(query, ctx) : -1;
+      }
+    };
+    searcher.setQueryCache(null);
+    Query query = new TermQuery(new Term("foo", "bar"));
+    // the partitions of the first leaf must not be counted a second time
+    assertEquals(30, searcher.count(query));
+    assertTrue(numExecutions.get() > 0);
+
+    TestUtil.shutdownExecutorService(service);
+    IOUtils.close(reader, dir);
+  }
+
+  public void testCollectionStatisticsAreCached() throws Exception {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    CollectionStatistics stats = searcher.collectionStatistics("field");
+    assertNotNull(stats);
+    assertEquals("field", stats.field());
+    assertEquals(reader.maxDoc(), stats.maxDoc());
+    assertEquals(100, stats.docCount());
+    assertEquals(100, stats.sumDocFreq());
+    assertSame(stats, searcher.collectionStatistics("field"));
+
+    assertNull(searcher.collectionStatistics("missing"));
+    assertNull(searcher.collectionStatistics("missing"));
+
+    // concurrent queries see equal statistics
+    Thread[] threads = new Thread[4];
+    CollectionStatistics[] results = new CollectionStatistics[threads.length];
+    IndexSearcher fresh = new IndexSearcher(reader);
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread(() -> {
+        try {
+          results[index] = fresh.collectionStatistics("field2");
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (CollectionStatistics result : results) {
+      assertEquals(100, result.docCount());
+      assertEquals(100, result.sumDocFreq());
+    }
+  }
+
+  public void testDocs() throws Exception {
+    Directory storedDir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), storedDir);
+    for (int i = 0; i < 200; i++) {
+      Document doc = new Document();
+      doc.add(new StoredField("id", i));
+      doc.add(new StoredField("text", "document " + i));
+      w.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        w.commit();
+      }
+    }
+    IndexReader storedReader = w.getReader();
+    w.close();
+
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    IndexSearcher[] searchers = new IndexSearcher[] {
+        new IndexSearcher(storedReader),
+        new IndexSearcher(storedReader, service)
+    };
+    int[] docIDs = new int[100];
+    for (int i = 0; i < docIDs.length; i++) {
+      // unsorted, with duplicates
+      docIDs[i] = random().nextInt(storedReader.maxDoc());
+    }
+    for (IndexSearcher searcher : searchers) {
+      Document[] docs = searcher.docs(docIDs);
+      Document[] ids = searcher.docs(docIDs, Collections.singleton("id"));
+      assertEquals(docIDs.length, docs.length);
+      for (int i = 0; i < docIDs.length; i++) {
+        Document expected = searcher.doc(docIDs[i]);
+        assertEquals(expected.get("id"), docs[i].get("id"));
+        assertEquals(expected.get("text"), docs[i].get("text"));
+        assertEquals(expected.get("id"), ids[i].get("id"));
+        assertNull(ids[i].get("text"));
+      }
+      assertEquals(0, searcher.docs(new int[0]).length);
+      expectThrows(IllegalArgumentException.class, () -> searcher.docs(new int[] { storedReader.maxDoc() }));
+      expectThrows(IllegalArgumentException.class, () -> searcher.docs(new int[] { -1 }));
+      expectThrows(IllegalArgumentException.class, () -> searcher.docs(new int[1], new StoredFieldVisitor[2]));
+    }
+
+    TestUtil.shutdownExecutorService(service);
+    IOUtils.close(storedReader, storedDir);
+  }
+
+  public void testMultiQuerySearch() throws Exception {
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    IndexSearcher[] searchers = new IndexSearcher[] {
+        new IndexSearcher(reader),
+        new IndexSearcher(reader, service) {
+          @Override
+          protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+            LeafSlice[] slices = new LeafSlice[leaves.size()];
+            for (int i = 0; i < slices.length; i++) {
+              slices[i] = new LeafSlice(leaves.get(i));
+            }
+            return slices;
+          }
+        }
+    };
+    CollectorManager<TotalHitCountCollector, Integer> countManager = new CollectorManager<TotalHitCountCollector, Integer>() {
+      @Override
+      public TotalHitCountCollector newCollector() {
+        return new TotalHitCountCollector();
+      }
+
+      @Override
+      public Integer reduce(Collection<TotalHitCountCollector> collectors) {
+        int count = 0;
+        for (TotalHitCountCollector collector : collectors) {
+          count += collector.getTotalHits();
+        }
+        return count;
+      }
+    };
+    CollectorManager<TopScoreDocCollector, TopDocs> topDocsManager = new CollectorManager<TopScoreDocCollector, TopDocs>() {
+      @Override
+      public TopScoreDocCollector newCollector() {
+        return TopScoreDocCollector.create(5, Integer.MAX_VALUE);
+      }
+
+      @Override
+      public TopDocs reduce(Collection<TopScoreDocCollector> collectors) {
+        TopDocs[] topDocs = new TopDocs[collectors.size()];
+        int i = 0;
+        for (TopScoreDocCollector collector : collectors) {
+          topDocs[i++] = collector.topDocs();
+        }
+        return TopDocs.merge(5, topDocs);
+      }
+    };
+
+    List<Query> queries = Arrays.asList(
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("field2", "true")),
+        new TermQuery(new Term("field", "7")),
+        new TermQuery(new Term("field", "missing")),
+        new TermQuery(new Term("field2", "false")));
+    List<CollectorManager<?, ?>> managers = Arrays.asList(countManager, countManager, countManager, countManager, topDocsManager);
+    for (IndexSearcher searcher : searchers) {
+      List<Object> results = searcher.search(queries, managers);
+      assertEquals(5, results.size());
+      assertEquals(100, results.get(0));
+      assertEquals(50, results.get(1));
+      assertEquals(1, results.get(2));
+      assertEquals(0, results.get(3));
+      TopDocs expected = searcher.search(queries.get(4), 5);
+      TopDocs actual = (TopDocs) results.get(4);
+      assertEquals(expected.totalHits.value, actual.totalHits.value);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; i++) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+      }
+
+      assertTrue(searcher.search(Collections.<Query>emptyList(), Collections.<CollectorManager<?, ?>>emptyList()).isEmpty());
+      expectThrows(IllegalArgumentException.class, () -> searcher.search(queries, managers.subList(0, 2)));
+    }
+
+    TestUtil.shutdownExecutorService(service);
+  }
 }
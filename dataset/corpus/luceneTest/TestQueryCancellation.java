@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestQueryCancellation extends LuceneTestCase {
+
+  public void testCancel() {
+    QueryCancellation cancellation = QueryCancellation.create();
+    assertTrue(cancellation.isTimeoutEnabled());
+    assertFalse(cancellation.shouldExit());
+    assertFalse(cancellation.isExpired());
+    cancellation.cancel();
+    assertTrue(cancellation.isCancelled());
+    assertTrue(cancellation.shouldExit());
+  }
+
+  public void testDeadline() {
+    QueryCancellation expired = QueryCancellation.withTimeout(0, TimeUnit.NANOSECONDS);
+    assertTrue(expired.isExpired());
+    assertTrue(expired.shouldExit());
+    assertFalse(expired.isCancelled());
+
+    QueryCancellation later = QueryCancellation.withTimeout(1, TimeUnit.HOURS);
+    assertFalse(later.shouldExit());
+    later.cancel();
+    assertTrue(later.shouldExit());
+
+    // a timeout too large for System.nanoTime() never expires
+    assertFalse(QueryCancellation.withTimeout(Long.MAX_VALUE, TimeUnit.DAYS).shouldExit());
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      QueryCancellation.withTimeout(-1, TimeUnit.SECONDS);
+    });
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+import org.apache.lucene.util.TestUtil;
+
+public class TestQueryProfile extends LuceneTestCase {
+
+  private static class CountManager implements CollectorManager<TotalHitCountCollector, Integer> {
+    @Override
+    public TotalHitCountCollector newCollector() {
+      return new TotalHitCountCollector();
+    }
+
+    @Override
+    public Integer reduce(Collection<TotalHitCountCollector> collectors) {
+      int count = 0;
+      for (TotalHitCountCollector collector : collectors) {
+        count += collector.getTotalHits();
+      }
+      return count;
+    }
+  }
+
+  private static IndexReader newReader(Directory dir) throws IOException {
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (int i = 0; i < 50; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("field", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+      w.addDocument(doc);
+      if (i % 10 == 9) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    return reader;
+  }
+
+  public void testSequentialSearch() throws Exception {
+    Directory dir = newDirectory();
+    IndexReader reader = newReader(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+
+    QueryProfile profile = new QueryProfile();
+    Query query = new TermQuery(new Term("field", "even"));
+    assertEquals(25, (int) searcher.search(query, new CountManager(), profile));
+    assertEquals(query, profile.getQuery());
+    assertEquals(25, profile.getCollectCount());
+    assertEquals(1, profile.getSlices().size());
+    QueryProfile.SliceProfile slice = profile.getSlices().get(0);
+    assertTrue(slice.isStarted());
+    assertTrue(slice.isCallerThread());
+    assertEquals(reader.leaves().size(), slice.getLeaves().size());
+    for (int i = 0; i < slice.getLeaves().size(); i++) {
+      QueryProfile.LeafProfile leaf = slice.getLeaves().get(i);
+      assertEquals(reader.leaves().get(i).ord, leaf.getOrd());
+      assertEquals(reader.leaves().get(i).docBase, leaf.getDocBase());
+      assertFalse(leaf.isEarlyTerminated());
+    }
+    assertTrue(profile.getTotalNanos() >= profile.getSearchNanos());
+    assertNotNull(profile.toString());
+
+    // a profile can not be reused
+    expectThrows(IllegalStateException.class, () -> searcher.search(query, new CountManager(), profile));
+    IOUtils.close(reader, dir);
+  }
+
+  public void testConcurrentSearch() throws Exception {
+    Directory dir = newDirectory();
+    IndexReader reader = newReader(dir);
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestQueryProfile"));
+    IndexSearcher searcher = new IndexSearcher(reader, service) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        LeafSlice[] slices = new LeafSlice[leaves.size()];
+        for (int i = 0; i < slices.length; i++) {
+          slices[i] = new LeafSlice(leaves.get(i));
+        }
+        return slices;
+      }
+    };
+
+    QueryProfile profile = new QueryProfile();
+    assertEquals(25, (int) searcher.search(new TermQuery(new Term("field", "odd")), new CountManager(), profile));
+    assertEquals(25, profile.getCollectCount());
+    assertEquals(searcher.getSlices().length, profile.getSlices().size());
+    for (int i = 0; i < profile.getSlices().size(); i++) {
+      QueryProfile.SliceProfile slice = profile.getSlices().get(i);
+      assertEquals(i, slice.getIndex());
+      assertTrue(slice.isStarted());
+      assertEquals(1, slice.getLeaves().size());
+      assertEquals(searcher.getSlices()[i].leaves[0].ord, slice.getLeaves().get(0).getOrd());
+      assertTrue(slice.getQueueWaitNanos() >= 0);
+      if (slice.isCallerThread()) {
+        assertEquals(0, slice.getQueueWaitNanos());
+      }
+    }
+    TestUtil.shutdownExecutorService(service);
+    IOUtils.close(reader, dir);
+  }
+
+  public void testEarlyTermination() throws Exception {
+    Directory dir = newDirectory();
+    IndexReader reader = newReader(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+
+    CollectorManager<Collector, Void> manager = new CollectorManager<Collector, Void>() {
+      @Override
+      public Collector newCollector() {
+        return new SimpleCollector() {
+          @Override
+          public void collect(int doc) {
+            throw new CollectionTerminatedException();
+          }
+
+          @Override
+          public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+          }
+        };
+      }
+
+      @Override
+      public Void reduce(Collection<Collector> collectors) {
+        return null;
+      }
+    };
+    QueryProfile profile = new QueryProfile();
+    searcher.search(new MatchAllDocsQuery(), manager, profile);
+    assertEquals(reader.leaves().size(), profile.getCollectCount());
+    for (QueryProfile.SliceProfile slice : profile.getSlices()) {
+      for (QueryProfile.LeafProfile leaf : slice.getLeaves()) {
+        assertTrue(leaf.isEarlyTerminated());
+        assertTrue(leaf.hasMatches());
+        assertEquals(1, leaf.getCollectCount());
+      }
+    }
+    IOUtils.close(reader, dir);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestQueryRewriteCache extends LuceneTestCase {
+
+  public void testHitsAndMisses() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 20; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("field", "value" + i, Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+
+    QueryRewriteCache cache = new QueryRewriteCache(10);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryRewriteCache(cache);
+    assertSame(cache, searcher.getQueryRewriteCache());
+
+    Query prefix = new PrefixQuery(new Term("field", "value1"));
+    Query rewritten = searcher.rewrite(prefix);
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getSize());
+    assertSame(rewritten, searcher.rewrite(new PrefixQuery(new Term("field", "value1"))));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(11, searcher.count(prefix));
+    assertEquals(2, cache.getHitCount());
+
+    // queries that rewrite to themselves are not cached
+    Query term = new TermQuery(new Term("field", "value1"));
+    assertSame(term, searcher.rewrite(term));
+    assertEquals(1, cache.getSize());
+    // and queries that never rewrite are not even looked up
+    long misses = cache.getMissCount();
+    assertEquals(1, searcher.count(term));
+    assertEquals(misses, cache.getMissCount());
+
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    IOUtils.close(reader, dir);
+  }
+
+  public void testEviction() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    doc.add(newStringField("field", "value", Field.Store.NO));
+    w.addDocument(doc);
+    IndexReader reader = w.getReader();
+    w.close();
+
+    QueryRewriteCache cache = new QueryRewriteCache(2);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryRewriteCache(cache);
+    Query q1 = new PrefixQuery(new Term("field", "v"));
+    Query q2 = new PrefixQuery(new Term("field", "va"));
+    Query q3 = new PrefixQuery(new Term("field", "val"));
+    searcher.rewrite(q1);
+    searcher.rewrite(q2);
+    searcher.rewrite(q1); // q2 is now the least recently used
+    searcher.rewrite(q3);
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getEvictionCount());
+    long misses = cache.getMissCount();
+    searcher.rewrite(q1);
+    assertEquals(misses, cache.getMissCount());
+    searcher.rewrite(q2);
+    assertEquals(misses + 1, cache.getMissCount());
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      new QueryRewriteCache(0);
+    });
+    IOUtils.close(reader, dir);
+  }
+
+  public void testEntriesArePerReader() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    doc.add(newStringField("field", "value1", Field.Store.NO));
+    w.addDocument(doc);
+    w.commit();
+    DirectoryReader reader = DirectoryReader.open(dir);
+
+    QueryRewriteCache cache = new QueryRewriteCache(10);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryRewriteCache(cache);
+    Query prefix = new PrefixQuery(new Term("field", "value"));
+    assertEquals(1, searcher.count(prefix));
+    assertEquals(1, cache.getSize());
+
+    doc = new Document();
+    doc.add(newStringField("field", "value2", Field.Store.NO));
+    w.addDocument(doc);
+    w.commit();
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+    assertNotNull(newReader);
+    IndexSearcher newSearcher = new IndexSearcher(newReader);
+    newSearcher.setQueryRewriteCache(cache);
+    assertEquals(2, newSearcher.count(prefix));
+    assertEquals(2, cache.getSize());
+    assertEquals(0, cache.getInvalidationCount());
+
+    // both searchers keep hitting their own entries
+    long hits = cache.getHitCount();
+    long misses = cache.getMissCount();
+    assertEquals(1, searcher.count(prefix));
+    assertEquals(2, newSearcher.count(prefix));
+    assertEquals(hits + 2, cache.getHitCount());
+    assertEquals(misses, cache.getMissCount());
+
+    // closing a reader only drops its own entries
+    reader.close();
+    assertEquals(1, cache.getSize());
+    assertEquals(1, cache.getInvalidationCount());
+    assertEquals(2, newSearcher.count(prefix));
+    assertEquals(hits + 3, cache.getHitCount());
+    newReader.close();
+    assertEquals(0, cache.getSize());
+    assertEquals(2, cache.getInvalidationCount());
+
+    w.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.util;
+
+public class TestRankSelectIndex extends LuceneTestCase {
+
+  public void testAgainstBitUtil() {
+    for (int iter = 0; iter < 100; iter++) {
+      long[] bits = buildRandomBits();
+      int numLongs = TestUtil.nextInt(random(), 1, bits.length);
+      RankSelectIndex index = new RankSelectIndex(bits, numLongs);
+      assertEquals(numLongs * Long.SIZE, index.length());
+      assertEquals(BitUtil.countBits(bits, numLongs), index.cardinality());
+
+      for (int bitIndex = 0; bitIndex <= index.length(); bitIndex++) {
+        assertEquals(BitUtil.countBitsUpTo(bits, numLongs, bitIndex), index.rank(bitIndex));
+        assertEquals(BitUtil.previousBitSet(bits, numLongs, bitIndex), index.previousBitSet(bitIndex));
+      }
+      for (int bitIndex = -1; bitIndex < index.length(); bitIndex++) {
+        assertEquals(BitUtil.nextBitSet(bits, numLongs, bitIndex), index.nextBitSet(bitIndex));
+      }
+      int rank = 0;
+      for (int bitIndex = BitUtil.nextBitSet(bits, numLongs, -1); bitIndex != -1;
+          bitIndex = BitUtil.nextBitSet(bits, numLongs, bitIndex)) {
+        assertEquals(bitIndex, index.select(rank++));
+      }
+    }
+  }
+
+  public void testSparse() {
+    // a few bits spread over many superblocks, so that consecutive select samples are far apart
+    long[] bits = new long[1 << 14];
+    int numBits = 0;
+    for (int longIndex = 0; longIndex < bits.length; longIndex += TestUtil.nextInt(random(), 1, 200)) {
+      bits[longIndex] |= 1L << random().nextInt(64);
+      numBits++;
+    }
+    RankSelectIndex index = new RankSelectIndex(bits, bits.length);
+    assertEquals(numBits, index.cardinality());
+    int rank = 0;
+    for (int bitIndex = BitUtil.nextBitSet(bits, bits.length, -1); bitIndex != -1;
+        bitIndex = BitUtil.nextBitSet(bits, bits.length, bitIndex)) {
+      assertEquals(bitIndex, index.select(rank++));
+      assertEquals(bitIndex, index.nextBitSet(bitIndex - 1));
+      assertEquals(bitIndex, index.previousBitSet(bitIndex + 1));
+    }
+    for (int iter = 0; iter < 1000; iter++) {
+      int bitIndex = random().nextInt(index.length());
+      assertEquals(BitUtil.nextBitSet(bits, bits.length, bitIndex), index.nextBitSet(bitIndex));
+      assertEquals(BitUtil.previousBitSet(bits, bits.length, bitIndex), index.previousBitSet(bitIndex));
+    }
+  }
+
+    public void testSelectInWord() {
+    for (int iter = 0; iter < 10000; iter++) {
+      long word = random().nextLong();
+      if (word == 0) {
+        continue;
+      }
+      long w = word;
+      for (int rank = 0; rank < Long.bitCount(word); rank++) {
+        assertEquals(Long.numberOfTrailingZeros(w), RankSelectIndex.selectInWord(word, rank));
+        w &= w - 1;
+      }
+    }
+  }
+
+  public void testEmpty() {
+    RankSelectIndex index = new RankSelectIndex(new long[0], 0);
+    assertEquals(0, index.cardinality());
+    assertEquals(0, index.rank(0));
+    assertEquals(-1, index.previousBitSet(0));
+
+    index = new RankSelectIndex(new long[100], 100);
+    assertEquals(0, index.cardinality());
+    assertEquals(-1, index.nextBitSet(-1));
+    assertEquals(-1, index.previousBitSet(index.length()));
+  }
+
+  public void testIllegalArguments() {
+    expectThrows(IllegalArgumentException.class, () -> new RankSelectIndex(new long[2], 3));
+    expectThrows(IllegalArgumentException.class, () -> new RankSelectIndex(new long[2], -1));
+  }
+
+  private long[] buildRandomBits() {
+    long[] bits = new long[TestUtil.nextInt(random(), 1, 100)];
+    // from very sparse, with whole superblocks of zeros, to dense
+    int density = random().nextInt(4);
+    for (int j = 0; j < bits.length; j++) {
+      switch (density) {
+        case 0:
+          bits[j] = random().nextInt(50) == 0 ? 1L << random().nextInt(64) : 0L;
+          break;
+        case 1:
+          bits[j] = random().nextInt(4) == 0 ? 0L : random().nextLong();
+          break;
+        case 2:
+          bits[j] = random().nextInt(4) == 0 ? -1L : random().nextLong();
+          break;
+        default:
+          bits[j] = -1L;
+          break;
+      }
+    }
+    return bits;
+  }
+}
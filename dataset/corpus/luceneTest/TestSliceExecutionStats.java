@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestSliceExecutionStats extends LuceneTestCase {
+
+  public void testEmpty() {
+    SliceExecutionStats stats = new SliceExecutionStats();
+    assertEquals(0, stats.getSearchCount());
+    assertEquals(0, stats.getSliceCount());
+    assertEquals(0, stats.getAverageQueueWait(TimeUnit.NANOSECONDS));
+    assertEquals(0, stats.getMaxQueueWait(TimeUnit.NANOSECONDS));
+    assertEquals(0, stats.getAveragePeakConcurrency(), 0);
+    assertEquals(0, stats.getMaxPeakConcurrency());
+  }
+
+  public void testRecord() {
+    SliceExecutionStats stats = new SliceExecutionStats();
+    stats.recordSlice(1000, true);
+    stats.recordSlice(3000, false);
+    stats.recordSlice(5000, false);
+    stats.recordSkippedSlice();
+    stats.recordSearch(2);
+    stats.recordSearch(3);
+
+    assertEquals(2, stats.getSearchCount());
+    assertEquals(3, stats.getSliceCount());
+    assertEquals(1, stats.getCallerSliceCount());
+    assertEquals(1, stats.getSkippedSliceCount());
+    assertEquals(3000, stats.getAverageQueueWait(TimeUnit.NANOSECONDS));
+    assertEquals(5, stats.getMaxQueueWait(TimeUnit.MICROSECONDS));
+    assertEquals(2.5, stats.getAveragePeakConcurrency(), 0);
+    assertEquals(3, stats.getMaxPeakConcurrency());
+  }
+}